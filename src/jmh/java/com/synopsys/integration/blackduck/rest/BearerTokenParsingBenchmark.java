@@ -0,0 +1,80 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares reading the authentication response into a String and a JsonObject tree with reading it through {@link JsonFieldReader}. Run with the gc profiler to see the allocations per authentication.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BearerTokenParsingBenchmark {
+    private static final byte[] AUTHENTICATION_RESPONSE = ("{\"bearerToken\":\"ZTk3ZjE5YmMtMjU5Ni00YjJhLTk5NjEtZDEyYjNmMTE5ZjE4OmMxOGIxYmY0LTRhZDctNGNmZi05MmU0LTc0NzM5NWE0ZTk4Mw==\","
+                                                                   + "\"expiresInMilliseconds\":7199998}").getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public long treeParsing() throws IOException {
+        final String body;
+        try (final InputStream inputStream = new ByteArrayInputStream(AUTHENTICATION_RESPONSE)) {
+            body = IOUtils.toString(inputStream, Charsets.UTF_8);
+        }
+        final JsonObject bearerResponse = new JsonParser().parse(body).getAsJsonObject();
+        return bearerResponse.get("bearerToken").getAsString().length() + bearerResponse.get("expiresInMilliseconds").getAsLong();
+    }
+
+    @Benchmark
+    public long streamingParsing() throws IOException {
+        final Map<String, String> fields;
+        try (final InputStream inputStream = new ByteArrayInputStream(AUTHENTICATION_RESPONSE)) {
+            fields = JsonFieldReader.readFields(inputStream, "bearerToken", "expiresInMilliseconds");
+        }
+        return fields.get("bearerToken").length() + Long.parseLong(fields.get("expiresInMilliseconds"));
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.synopsys.integration.exception.IntegrationException;
+
+/**
+ * Measures building a connection and authenticating an already connected client against {@link MockHub}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionSetupBenchmark {
+    private final MockHub mockHub = new MockHub();
+    private ApiTokenRestConnectionBuilder apiTokenRestConnectionBuilder;
+    private ApiTokenRestConnection apiTokenRestConnection;
+    private CredentialsRestConnection credentialsRestConnection;
+
+    @Setup
+    public void setUp() throws IOException, IntegrationException {
+        mockHub.start();
+        apiTokenRestConnectionBuilder = mockHub.createApiTokenRestConnectionBuilder();
+        apiTokenRestConnection = mockHub.createApiTokenRestConnectionBuilder().build();
+        apiTokenRestConnection.connect();
+        credentialsRestConnection = mockHub.createCredentialsRestConnectionBuilder().build();
+        credentialsRestConnection.connect();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        apiTokenRestConnection.close();
+        credentialsRestConnection.close();
+        mockHub.shutdown();
+    }
+
+    @Benchmark
+    public ApiTokenRestConnection buildApiTokenRestConnection() {
+        return apiTokenRestConnectionBuilder.build();
+    }
+
+    @Benchmark
+    public ApiTokenRestConnection authenticateWithApiToken() throws IntegrationException {
+        apiTokenRestConnection.authenticateWithBlackduck();
+        return apiTokenRestConnection;
+    }
+
+    @Benchmark
+    public CredentialsRestConnection authenticateWithCredentials() throws IntegrationException {
+        credentialsRestConnection.authenticateWithBlackduck();
+        return credentialsRestConnection;
+    }
+
+}
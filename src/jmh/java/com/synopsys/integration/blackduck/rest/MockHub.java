@@ -0,0 +1,147 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+
+import javax.net.ServerSocketFactory;
+
+import com.synopsys.integration.log.SilentLogger;
+import com.synopsys.integration.rest.proxy.ProxyInfo;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * A local stand-in for the Hub that answers both kinds of authentication and the project endpoints used by the benchmarks.
+ */
+public class MockHub {
+    public static final String PROJECTS_PATH = "api/projects";
+    public static final String PROJECT_JSON = "{\"name\":\"benchmark\",\"description\":\"A project used to measure request handling\",\"projectLevelAdjustments\":true,\"_meta\":{\"href\":\"https://hub/api/projects/1\"}}";
+
+    private static final String BEARER_TOKEN_JSON = "{\"bearerToken\":\"ZTk3ZjE5YmMtMjU5Ni00YjJhLTk5NjEtZDEyYjNmMTE5ZjE4\",\"expiresInMilliseconds\":7199998}";
+
+    private final MockWebServer server = new MockWebServer();
+
+    public void start() throws IOException {
+        // MockWebServer writes headers and body separately, without TCP_NODELAY every response with a body would wait for a delayed ack
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) {
+                final String path = request.getPath();
+                if (path.endsWith("j_spring_security_check")) {
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf").setResponseCode(204);
+                }
+                if (path.endsWith("api/tokens/authenticate")) {
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf").addHeader("Content-Type", "application/json").setBody(BEARER_TOKEN_JSON);
+                }
+                if ("POST".equals(request.getMethod())) {
+                    return new MockResponse().addHeader("Location", getBaseUrl() + PROJECTS_PATH + "/1").setResponseCode(201);
+                }
+                return new MockResponse().addHeader("Content-Type", "application/json").setBody(PROJECT_JSON);
+            }
+        });
+        server.start();
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    public URL getBaseUrl() {
+        return server.url("/").url();
+    }
+
+    public ApiTokenRestConnectionBuilder createApiTokenRestConnectionBuilder() {
+        final ApiTokenRestConnectionBuilder builder = new ApiTokenRestConnectionBuilder();
+        builder.setLogger(new SilentLogger());
+        builder.setBaseUrl(getBaseUrl().toString());
+        builder.setTimeout(120);
+        builder.setApiToken("ApiToken");
+        builder.applyProxyInfo(ProxyInfo.NO_PROXY_INFO);
+        // every authentication should reach the server
+        builder.setBearerTokenCache(null);
+        builder.setRefreshBearerTokenBeforeExpiration(false);
+        return builder;
+    }
+
+    public CredentialsRestConnectionBuilder createCredentialsRestConnectionBuilder() {
+        final CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.setLogger(new SilentLogger());
+        builder.setBaseUrl(getBaseUrl().toString());
+        builder.setTimeout(120);
+        builder.setUsername("User");
+        builder.setPassword("Password");
+        builder.applyProxyInfo(ProxyInfo.NO_PROXY_INFO);
+        return builder;
+    }
+
+    private static class NoDelayServerSocketFactory extends ServerSocketFactory {
+        // the backlog of java.net.ServerSocket
+        private static final int DEFAULT_BACKLOG = 50;
+
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    final Socket socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(final int port) throws IOException {
+            return createServerSocket(port, DEFAULT_BACKLOG, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(final int port, final int backlog) throws IOException {
+            return createServerSocket(port, backlog, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(final int port, final int backlog, final InetAddress ifAddress) throws IOException {
+            final ServerSocket serverSocket = createServerSocket();
+            try {
+                serverSocket.bind(new InetSocketAddress(ifAddress, port), backlog);
+            } catch (final IOException e) {
+                serverSocket.close();
+                throw e;
+            }
+            return serverSocket;
+        }
+    }
+
+}
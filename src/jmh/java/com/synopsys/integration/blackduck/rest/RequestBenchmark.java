@@ -0,0 +1,100 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.HttpMethod;
+import com.synopsys.integration.rest.body.StringBodyContent;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.request.Response;
+
+/**
+ * Measures the throughput of GET and POST requests over an authenticated connection to {@link MockHub}, including header population and reading the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+    private final MockHub mockHub = new MockHub();
+    private BlackduckRestConnection restConnection;
+    private Request getRequest;
+    private Request postRequest;
+
+    @Setup
+    public void setUp() throws IOException, IntegrationException {
+        mockHub.start();
+        restConnection = mockHub.createApiTokenRestConnectionBuilder().build();
+        restConnection.connect();
+
+        final String projectsUrl = mockHub.getBaseUrl() + MockHub.PROJECTS_PATH;
+        getRequest = new Request.Builder(projectsUrl).build();
+        postRequest = new Request.Builder(projectsUrl).method(HttpMethod.POST).mimeType("application/json").bodyContent(new StringBodyContent(MockHub.PROJECT_JSON)).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        restConnection.close();
+        mockHub.shutdown();
+    }
+
+    @Benchmark
+    public String get() throws IntegrationException, IOException {
+        try (final Response response = restConnection.executeRequest(getRequest)) {
+            return response.getContentString();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String concurrentGet() throws IntegrationException, IOException {
+        return get();
+    }
+
+    @Benchmark
+    public String post() throws IntegrationException, IOException {
+        try (final Response response = restConnection.executeRequest(postRequest)) {
+            return response.getHeaderValue("Location");
+        }
+    }
+
+}
@@ -25,13 +25,14 @@ package com.synopsys.integration.blackduck.rest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 import org.apache.commons.codec.Charsets;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.client.config.CookieSpecs;
@@ -39,11 +40,9 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.cookie.Cookie;
 import org.apache.http.impl.client.HttpClientBuilder;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.log.IntLogger;
 import com.synopsys.integration.rest.HttpMethod;
@@ -57,8 +56,13 @@ import com.synopsys.integration.rest.request.Response;
  */
 public class ApiTokenRestConnection extends BlackduckRestConnection {
     private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_TOKEN_FIELD = "bearerToken";
+    private static final String EXPIRES_IN_MILLISECONDS_FIELD = "expiresInMilliseconds";
 
     private final String hubApiToken;
+    private BearerTokenCache bearerTokenCache;
+    private BearerToken bearerToken;
+    private BearerTokenRefresher bearerTokenRefresher;
 
     public ApiTokenRestConnection(final IntLogger logger, final URL hubBaseUrl, final String hubApiToken, final int timeout, final ProxyInfo proxyInfo) {
         super(logger, hubBaseUrl, timeout, proxyInfo);
@@ -67,18 +71,20 @@ public class ApiTokenRestConnection extends BlackduckRestConnection {
 
     @Override
     public void populateHttpClientBuilder(final HttpClientBuilder httpClientBuilder, final RequestConfig.Builder defaultRequestConfigBuilder) throws IntegrationException {
+        super.populateHttpClientBuilder(httpClientBuilder, defaultRequestConfigBuilder);
         // TODO romeara: This is a workaround because of HUB-13740, CSRF requires a session to work properly
         if (StringUtils.isNotBlank(hubApiToken)) {
-            httpClientBuilder.setDefaultCookieStore(new BasicCookieStore());
+            httpClientBuilder.setDefaultCookieStore(getCookieStore());
             defaultRequestConfigBuilder.setCookieSpec(CookieSpecs.DEFAULT);
         }
     }
 
     /**
      * Gets the cookie for the Authorized connection to the Hub server. Returns the response code from the connection.
+     * A valid bearer token from the cache is reused, unless it is the token this connection already holds, which means the Hub rejected it.
      */
     @Override
-    public void authenticateWithBlackduck() throws IntegrationException {
+    public synchronized void authenticateWithBlackduck() throws IntegrationException {
         final URL authenticationUrl;
         try {
             authenticationUrl = new URL(getBaseUrl(), "api/tokens/authenticate");
@@ -87,12 +93,22 @@ public class ApiTokenRestConnection extends BlackduckRestConnection {
         }
 
         if (StringUtils.isNotBlank(hubApiToken)) {
+            if (bearerTokenCache != null) {
+                final Optional<BearerToken> cachedBearerToken = bearerTokenCache.get(getBaseUrl(), hubApiToken);
+                if (cachedBearerToken.isPresent() && cachedBearerToken.get() != bearerToken) {
+                    applyBearerToken(cachedBearerToken.get());
+                    return;
+                } else if (bearerToken != null) {
+                    bearerTokenCache.invalidate(getBaseUrl(), hubApiToken, bearerToken);
+                }
+            }
+
             final RequestBuilder requestBuilder = createRequestBuilder(HttpMethod.POST, getRequestHeaders());
             requestBuilder.setCharset(Charsets.UTF_8);
             requestBuilder.setUri(authenticationUrl.toString());
             final HttpUriRequest request = requestBuilder.build();
             logRequestHeaders(request);
-            try (final CloseableHttpResponse closeableHttpResponse = getClient().execute(request)) {
+            try (final CloseableHttpResponse closeableHttpResponse = sendAuthenticationRequest(request)) {
                 logResponseHeaders(closeableHttpResponse);
                 final Response response = new Response(closeableHttpResponse);
                 final int statusCode = closeableHttpResponse.getStatusLine().getStatusCode();
@@ -101,15 +117,17 @@ public class ApiTokenRestConnection extends BlackduckRestConnection {
                     final String httpResponseContent = response.getContentString();
                     throw new IntegrationRestException(statusCode, statusMessage, httpResponseContent, String.format("Connection Error: %s %s", statusCode, statusMessage));
                 } else {
-                    addCommonRequestHeader(AUTHORIZATION_HEADER, "Bearer " + readBearerToken(closeableHttpResponse));
-
                     // get the CSRF token
                     final Header csrfToken = closeableHttpResponse.getFirstHeader(RestConstants.X_CSRF_TOKEN);
-                    if (csrfToken != null) {
-                        addCommonRequestHeader(RestConstants.X_CSRF_TOKEN, csrfToken.getValue());
-                    } else {
+                    if (csrfToken == null) {
                         logger.error("No CSRF token found when authenticating");
                     }
+
+                    final BearerToken newBearerToken = readBearerToken(closeableHttpResponse, csrfToken == null ? null : csrfToken.getValue());
+                    applyBearerToken(newBearerToken);
+                    if (bearerTokenCache != null) {
+                        bearerTokenCache.put(getBaseUrl(), hubApiToken, newBearerToken);
+                    }
                 }
             } catch (final IOException e) {
                 throw new IntegrationException(e.getMessage(), e);
@@ -124,14 +142,93 @@ public class ApiTokenRestConnection extends BlackduckRestConnection {
         return headers;
     }
 
-    private String readBearerToken(final CloseableHttpResponse response) throws IOException {
-        final JsonParser jsonParser = new JsonParser();
-        String bodyToken = "";
+    private BearerToken readBearerToken(final CloseableHttpResponse response, final String csrfToken) throws IOException {
+        final long requestCompletedMillis = System.currentTimeMillis();
+        final Map<String, String> fields;
         try (final InputStream inputStream = response.getEntity().getContent()) {
-            bodyToken = IOUtils.toString(inputStream, Charsets.UTF_8);
+            fields = JsonFieldReader.readFields(inputStream, BEARER_TOKEN_FIELD, EXPIRES_IN_MILLISECONDS_FIELD);
+        }
+        final String token = fields.get(BEARER_TOKEN_FIELD);
+        if (token == null) {
+            throw new IOException("The authentication response did not contain a " + BEARER_TOKEN_FIELD);
+        }
+
+        long expirationTimeMillis = BearerToken.UNKNOWN_EXPIRATION;
+        final String expiresInMilliseconds = fields.get(EXPIRES_IN_MILLISECONDS_FIELD);
+        if (expiresInMilliseconds != null) {
+            try {
+                // the Hub may send the number as a decimal, such as 7200000.0
+                expirationTimeMillis = requestCompletedMillis + new BigDecimal(expiresInMilliseconds).longValue();
+            } catch (final NumberFormatException e) {
+                throw new IOException("The " + EXPIRES_IN_MILLISECONDS_FIELD + " of the authentication response is not a number: " + expiresInMilliseconds, e);
+            }
+        }
+        return new BearerToken(token, csrfToken, getCookieStore().getCookies(), expirationTimeMillis);
+    }
+
+    /**
+     * Re-authenticates unless the given token was already replaced, by a cached token or a re-authentication after a rejected request.
+     */
+    public synchronized void refreshBearerToken(final BearerToken expiringBearerToken) throws IntegrationException {
+        if (bearerToken == expiringBearerToken) {
+            authenticate();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bearerTokenRefresher != null) {
+            bearerTokenRefresher.cancel();
+        }
+        super.close();
+    }
+
+    private void applyBearerToken(final BearerToken newBearerToken) {
+        for (final Cookie cookie : newBearerToken.getCookies()) {
+            getCookieStore().addCookie(cookie);
+        }
+
+        final Map<String, String> authenticationHeaders = new HashMap<>();
+        authenticationHeaders.put(AUTHORIZATION_HEADER, "Bearer " + newBearerToken.getToken());
+        if (newBearerToken.getCsrfToken() != null) {
+            authenticationHeaders.put(RestConstants.X_CSRF_TOKEN, newBearerToken.getCsrfToken());
         }
-        final JsonObject bearerResponse = jsonParser.parse(bodyToken).getAsJsonObject();
-        return bearerResponse.get("bearerToken").getAsString();
+        addCommonRequestHeaders(authenticationHeaders);
+        bearerToken = newBearerToken;
+
+        if (bearerTokenRefresher != null) {
+            bearerTokenRefresher.schedule(newBearerToken);
+        }
+    }
+
+    public BearerTokenCache getBearerTokenCache() {
+        return bearerTokenCache;
+    }
+
+    /**
+     * @param bearerTokenCache the cache to share bearer tokens through, or null to always authenticate
+     */
+    public void setBearerTokenCache(final BearerTokenCache bearerTokenCache) {
+        this.bearerTokenCache = bearerTokenCache;
+    }
+
+    public boolean isRefreshBearerTokenBeforeExpiration() {
+        return bearerTokenRefresher != null;
+    }
+
+    /**
+     * When enabled the bearer token is renewed in the background shortly before it expires, instead of waiting for the Hub to reject it.
+     */
+    public void setRefreshBearerTokenBeforeExpiration(final boolean refreshBearerTokenBeforeExpiration) {
+        if (bearerTokenRefresher != null) {
+            bearerTokenRefresher.cancel();
+        }
+        bearerTokenRefresher = refreshBearerTokenBeforeExpiration ? new BearerTokenRefresher(logger, this, BearerTokenRefresher.DEFAULT_REFRESH_MARGIN_MILLISECONDS) : null;
+    }
+
+    @Override
+    protected String getCredentialsKey() {
+        return hubApiToken;
     }
 
 }
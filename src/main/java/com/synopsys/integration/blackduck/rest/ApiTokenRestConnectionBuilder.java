@@ -24,12 +24,13 @@
 package com.synopsys.integration.blackduck.rest;
 
 import com.synopsys.integration.blackduck.validator.ApiTokenRestConnectionValidator;
-import com.synopsys.integration.rest.connection.AbstractRestConnectionBuilder;
 import com.synopsys.integration.rest.proxy.ProxyInfo;
 import com.synopsys.integration.validator.AbstractValidator;
 
-public class ApiTokenRestConnectionBuilder extends AbstractRestConnectionBuilder<ApiTokenRestConnection> {
+public class ApiTokenRestConnectionBuilder extends BlackduckRestConnectionBuilder<ApiTokenRestConnection> {
     private String apiToken;
+    private BearerTokenCache bearerTokenCache = BearerTokenCache.getSharedInstance();
+    private boolean refreshBearerTokenBeforeExpiration = true;
 
     public String getApiToken() {
         return apiToken;
@@ -39,6 +40,22 @@ public class ApiTokenRestConnectionBuilder extends AbstractRestConnectionBuilder
         this.apiToken = apiToken;
     }
 
+    public BearerTokenCache getBearerTokenCache() {
+        return bearerTokenCache;
+    }
+
+    public void setBearerTokenCache(final BearerTokenCache bearerTokenCache) {
+        this.bearerTokenCache = bearerTokenCache;
+    }
+
+    public boolean isRefreshBearerTokenBeforeExpiration() {
+        return refreshBearerTokenBeforeExpiration;
+    }
+
+    public void setRefreshBearerTokenBeforeExpiration(final boolean refreshBearerTokenBeforeExpiration) {
+        this.refreshBearerTokenBeforeExpiration = refreshBearerTokenBeforeExpiration;
+    }
+
     @Override
     public AbstractValidator createValidator() {
         final ApiTokenRestConnectionValidator validator = new ApiTokenRestConnectionValidator();
@@ -60,7 +77,19 @@ public class ApiTokenRestConnectionBuilder extends AbstractRestConnectionBuilder
     @Override
     public ApiTokenRestConnection createConnection(final ProxyInfo proxyInfo) {
         final ApiTokenRestConnection connection = new ApiTokenRestConnection(getLogger(), getBaseConnectionUrl(), getApiToken(), getTimeout(), proxyInfo);
+        connection.setBearerTokenCache(getBearerTokenCache());
+        connection.setRefreshBearerTokenBeforeExpiration(isRefreshBearerTokenBeforeExpiration());
         return connection;
     }
 
+    @Override
+    public String createConnectionKey() {
+        return ConnectionKeys.join(super.createConnectionKey(), ConnectionKeys.identity(getBearerTokenCache()), isRefreshBearerTokenBeforeExpiration());
+    }
+
+    @Override
+    protected String getCredentialsKey() {
+        return getApiToken();
+    }
+
 }
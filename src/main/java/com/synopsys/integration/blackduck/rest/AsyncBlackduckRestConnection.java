@@ -0,0 +1,301 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.log.IntLogger;
+import com.synopsys.integration.rest.RestConstants;
+import com.synopsys.integration.rest.exception.IntegrationRestException;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.request.Response;
+
+/**
+ * Non-blocking requests to the Hub on top of HttpAsyncClient, so many requests can be in flight on a few I/O threads.
+ * Authentication is left to the wrapped BlackduckRestConnection: the async client shares its session cookies, common headers, proxy and timeout settings, its request governor and circuit breaker, and rejected requests are re-authenticated and replayed the same way.
+ */
+public class AsyncBlackduckRestConnection implements Closeable {
+    public static final int DEFAULT_IO_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final BlackduckRestConnection restConnection;
+    private final IntLogger logger;
+    private final int ioThreadCount;
+    private final boolean ownsRestConnection;
+    private final ExecutorService blockingExecutor;
+    private CloseableHttpAsyncClient client;
+
+    /**
+     * The wrapped connection stays open when this one is closed, it may have other users such as those of a {@link RestConnectionRegistry}.
+     */
+    public AsyncBlackduckRestConnection(final BlackduckRestConnection restConnection, final int ioThreadCount) {
+        this(restConnection, ioThreadCount, false);
+    }
+
+    /**
+     * @param ownsRestConnection true to close the wrapped connection together with this one
+     */
+    public AsyncBlackduckRestConnection(final BlackduckRestConnection restConnection, final int ioThreadCount, final boolean ownsRestConnection) {
+        this.restConnection = restConnection;
+        this.logger = restConnection.getLogger();
+        this.ioThreadCount = ioThreadCount;
+        this.ownsRestConnection = ownsRestConnection;
+        // re-authentication blocks, so it must never run on the I/O threads
+        this.blockingExecutor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "blackduck-async-blocking");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Connects and authenticates the wrapped connection if needed, then starts the async client.
+     */
+    public synchronized void connect() throws IntegrationException {
+        if (client != null) {
+            return;
+        }
+        restConnection.connectIfNeeded();
+
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setIoThreadCount(ioThreadCount).build();
+        client = HttpAsyncClients.custom()
+                .setDefaultIOReactorConfig(ioReactorConfig)
+                .setDefaultCookieStore(restConnection.getCookieStore())
+                .setDefaultCredentialsProvider(restConnection.getCredentialsProvider())
+                .setDefaultRequestConfig(restConnection.getDefaultRequestConfigBuilder().build())
+                .setSSLContext(restConnection.getSslContext())
+                .setSSLHostnameVerifier(new NoopHostnameVerifier())
+                .setMaxConnTotal(restConnection.getMaxTotalConnections())
+                .setMaxConnPerRoute(restConnection.getMaxConnectionsPerRoute())
+                .build();
+        client.start();
+    }
+
+    public CompletableFuture<Response> executeRequest(final Request request) {
+        try {
+            // connect first, the request has to be created with the authentication headers
+            connect();
+            return executeRequest(restConnection.createHttpRequest(request));
+        } catch (final IntegrationException e) {
+            final CompletableFuture<Response> failedResponse = new CompletableFuture<>();
+            failedResponse.completeExceptionally(e);
+            return failedResponse;
+        }
+    }
+
+    /**
+     * The returned future completes with the response for 2xx status codes and exceptionally with an IntegrationRestException otherwise. The response body is buffered in memory.
+     */
+    public CompletableFuture<Response> executeRequest(final HttpUriRequest request) {
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        final long start = System.nanoTime();
+        try {
+            connect();
+            execute(request, false, response, start);
+        } catch (final IntegrationException e) {
+            response.completeExceptionally(e);
+        }
+        // the returned stage completes after the request was recorded
+        return response.whenComplete((completedResponse, exception) -> restConnection.recordRequest(request, completedResponse, exception, System.nanoTime() - start));
+    }
+
+    public BlackduckRestConnection getRestConnection() {
+        return restConnection;
+    }
+
+    @Override
+    public void close() throws IOException {
+        blockingExecutor.shutdown();
+        synchronized (this) {
+            if (client != null) {
+                client.close();
+            }
+        }
+        if (ownsRestConnection) {
+            restConnection.close();
+        }
+    }
+
+    /**
+     * Requests share the {@link RequestGovernor} of the wrapped connection. They wait for it without holding a thread, and fail when the request deadline of the wrapped connection passes first.
+     */
+    private void execute(final HttpUriRequest request, final boolean replayed, final CompletableFuture<Response> futureResponse, final long requestStart) {
+        final RequestGovernor requestGovernor = restConnection.getRequestGovernor();
+        if (requestGovernor == null) {
+            send(request, replayed, futureResponse, null, requestStart);
+            return;
+        }
+
+        final long remainingMillis = getRemainingMillis(requestStart);
+        if (remainingMillis < 0) {
+            futureResponse.completeExceptionally(new IntegrationException(String.format("The deadline to %s %s passed before the request could be sent", request.getMethod(), request.getURI())));
+            return;
+        }
+        requestGovernor.acquireAsync(remainingMillis).whenComplete((waitNanos, exception) -> {
+            if (exception != null) {
+                futureResponse.completeExceptionally(exception);
+                return;
+            }
+            restConnection.getMetricsListener().requestAdmitted(request.getMethod(), request.getURI(), waitNanos, requestGovernor.getQueueDepth());
+            send(request, replayed, futureResponse, requestGovernor, requestStart);
+        });
+    }
+
+    /**
+     * The milliseconds left until the request deadline of the wrapped connection, 0 for no deadline and -1 when it passed.
+     */
+    private long getRemainingMillis(final long requestStart) {
+        final long deadlineMillis = restConnection.getRequestDeadlineMillis();
+        if (deadlineMillis <= 0) {
+            return 0;
+        }
+        final long remainingMillis = deadlineMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart);
+        return remainingMillis > 0 ? remainingMillis : -1;
+    }
+
+    /**
+     * Like {@link BlackduckRestConnection#sendRequest(HttpUriRequest)} the outcome is recorded with the {@link CircuitBreaker} of the wrapped connection, and the future fails at once with a CircuitBreakerOpenException while it is open.
+     */
+    private void send(final HttpUriRequest request, final boolean replayed, final CompletableFuture<Response> futureResponse, final RequestGovernor requestGovernor, final long requestStart) {
+        final CircuitBreaker circuitBreaker = restConnection.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            try {
+                circuitBreaker.acquirePermission(restConnection.getMetricsListener());
+            } catch (final CircuitBreakerOpenException e) {
+                release(requestGovernor, -1, System.nanoTime());
+                futureResponse.completeExceptionally(new IntegrationException(e.getMessage(), e));
+                return;
+            }
+        }
+
+        final long requestGeneration = restConnection.getAuthenticationGeneration();
+        final long start = System.nanoTime();
+        logger.trace("starting async request: " + request.getURI().toString());
+        final FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(final HttpResponse httpResponse) {
+                // the body is already buffered, the request is no longer in flight
+                release(requestGovernor, httpResponse.getStatusLine().getStatusCode(), start);
+                record(circuitBreaker, circuitBreaker != null && circuitBreaker.isFailure(httpResponse.getStatusLine().getStatusCode()));
+                final Response response = new Response(new BasicCloseableHttpResponse(httpResponse));
+                final int statusCode = httpResponse.getStatusLine().getStatusCode();
+                final String statusMessage = httpResponse.getStatusLine().getReasonPhrase();
+                if (statusCode >= RestConstants.OK_200 && statusCode < RestConstants.MULT_CHOICE_300) {
+                    futureResponse.complete(response);
+                    return;
+                }
+
+                try {
+                    if (!replayed && restConnection.isAuthenticationFailure(httpResponse) && restConnection.isRepeatable(request)) {
+                        restConnection.getMetricsListener().requestRetried(request.getMethod(), request.getURI(), statusCode);
+                        blockingExecutor.execute(() -> reauthenticateAndReplay(requestGeneration, request, futureResponse, requestStart));
+                    } else {
+                        final String httpResponseContent = response.getContentString();
+                        futureResponse.completeExceptionally(new IntegrationRestException(statusCode, statusMessage, httpResponseContent,
+                                String.format("There was a problem trying to %s this item: %s. Error: %s %s", request.getMethod(), request.getURI().toString(), statusCode, statusMessage)));
+                    }
+                } catch (final IntegrationException e) {
+                    futureResponse.completeExceptionally(e);
+                } catch (final IOException e) {
+                    futureResponse.completeExceptionally(new IntegrationException(e.getMessage(), e));
+                } finally {
+                    closeQuietly(response);
+                }
+            }
+
+            @Override
+            public void failed(final Exception e) {
+                release(requestGovernor, -1, start);
+                record(circuitBreaker, true);
+                futureResponse.completeExceptionally(new IntegrationException(e.getMessage(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                release(requestGovernor, -1, start);
+                // nothing was learned about the Hub, but a half-open breaker must not wait for this probe forever
+                record(circuitBreaker, true);
+                futureResponse.cancel(false);
+            }
+        };
+
+        try {
+            client.execute(request, callback);
+        } catch (final RuntimeException e) {
+            callback.failed(e);
+        }
+    }
+
+    private void release(final RequestGovernor requestGovernor, final int statusCode, final long start) {
+        if (requestGovernor != null) {
+            requestGovernor.release(statusCode, System.nanoTime() - start);
+        }
+    }
+
+    private void record(final CircuitBreaker circuitBreaker, final boolean failed) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (failed) {
+            circuitBreaker.recordFailure(restConnection.getMetricsListener());
+        } else {
+            circuitBreaker.recordSuccess(restConnection.getMetricsListener());
+        }
+    }
+
+    private void reauthenticateAndReplay(final long requestGeneration, final HttpUriRequest rejectedRequest, final CompletableFuture<Response> futureResponse, final long requestStart) {
+        try {
+            final long remainingMillis = getRemainingMillis(requestStart);
+            if (remainingMillis < 0) {
+                throw new IntegrationException(String.format("The deadline to %s %s passed before the request could be re-authenticated", rejectedRequest.getMethod(), rejectedRequest.getURI()));
+            }
+            restConnection.reauthenticate(requestGeneration, rejectedRequest, remainingMillis);
+            execute(restConnection.copyHttpRequest(rejectedRequest), true, futureResponse, requestStart);
+        } catch (final IntegrationException | RuntimeException e) {
+            futureResponse.completeExceptionally(e);
+        }
+    }
+
+    private void closeQuietly(final Response response) {
+        try {
+            response.close();
+        } catch (final IOException e) {
+            logger.debug("Could not close the response: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * A CloseableHttpResponse for responses that don't come from the classic HttpClient, so they can still be handed out as a {@link com.synopsys.integration.rest.request.Response}.
+ */
+public class BasicCloseableHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+    public BasicCloseableHttpResponse(final HttpResponse httpResponse) {
+        super(httpResponse.getStatusLine());
+        setHeaders(httpResponse.getAllHeaders());
+        setEntity(httpResponse.getEntity());
+    }
+
+    @Override
+    public void close() throws IOException {
+        EntityUtils.consume(getEntity());
+    }
+
+}
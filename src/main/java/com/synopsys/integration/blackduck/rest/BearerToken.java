@@ -0,0 +1,77 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.cookie.Cookie;
+
+/**
+ * The result of authenticating with a Hub API token: the bearer token, the CSRF token and session cookies that go with it, and when it expires.
+ */
+public class BearerToken {
+    public static final long UNKNOWN_EXPIRATION = -1;
+
+    private final String token;
+    private final String csrfToken;
+    private final List<Cookie> cookies;
+    private final long expirationTimeMillis;
+
+    public BearerToken(final String token, final String csrfToken, final List<Cookie> cookies, final long expirationTimeMillis) {
+        this.token = token;
+        this.csrfToken = csrfToken;
+        this.cookies = cookies == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(cookies));
+        this.expirationTimeMillis = expirationTimeMillis;
+    }
+
+    public boolean hasExpiration() {
+        return expirationTimeMillis != UNKNOWN_EXPIRATION;
+    }
+
+    /**
+     * A token without a known expiration is never considered expired, it is only dropped once the Hub rejects it.
+     */
+    public boolean isExpiredAt(final long timeMillis) {
+        return hasExpiration() && timeMillis >= expirationTimeMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getCsrfToken() {
+        return csrfToken;
+    }
+
+    public List<Cookie> getCookies() {
+        return cookies;
+    }
+
+    public long getExpirationTimeMillis() {
+        return expirationTimeMillis;
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Thread-safe cache of bearer tokens keyed by the Hub base url and a hash of the API token, so connections to the same Hub with the same API token can skip the authentication round-trip.
+ */
+public class BearerTokenCache {
+    public static final long DEFAULT_EXPIRATION_MARGIN_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final BearerTokenCache SHARED_INSTANCE = new BearerTokenCache();
+
+    private final ConcurrentMap<String, BearerToken> bearerTokens = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final long expirationMarginMillis;
+
+    public BearerTokenCache() {
+        this(DEFAULT_EXPIRATION_MARGIN_MILLISECONDS);
+    }
+
+    /**
+     * @param expirationMarginMillis cached tokens expiring within this margin are treated as already expired
+     */
+    public BearerTokenCache(final long expirationMarginMillis) {
+        this.expirationMarginMillis = expirationMarginMillis;
+    }
+
+    public static BearerTokenCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    public Optional<BearerToken> get(final URL baseUrl, final String apiToken) {
+        final String key = createKey(baseUrl, apiToken);
+        final BearerToken bearerToken = bearerTokens.get(key);
+        if (bearerToken != null && bearerToken.isExpiredAt(System.currentTimeMillis() + expirationMarginMillis)) {
+            bearerTokens.remove(key, bearerToken);
+        } else if (bearerToken != null) {
+            hitCount.increment();
+            return Optional.of(bearerToken);
+        }
+        missCount.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Only tokens with a known expiration are cached.
+     */
+    public void put(final URL baseUrl, final String apiToken, final BearerToken bearerToken) {
+        if (bearerToken.hasExpiration()) {
+            bearerTokens.put(createKey(baseUrl, apiToken), bearerToken);
+        }
+    }
+
+    /**
+     * Removes the cached token only if it is still the given one, so a token that was already replaced by another connection is left alone.
+     */
+    public void invalidate(final URL baseUrl, final String apiToken, final BearerToken bearerToken) {
+        bearerTokens.remove(createKey(baseUrl, apiToken), bearerToken);
+    }
+
+    public void clear() {
+        bearerTokens.clear();
+    }
+
+    public int size() {
+        return bearerTokens.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private String createKey(final URL baseUrl, final String apiToken) {
+        return baseUrl.toString() + "|" + DigestUtils.sha256Hex(apiToken);
+    }
+
+}
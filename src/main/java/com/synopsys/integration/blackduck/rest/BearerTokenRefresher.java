@@ -0,0 +1,98 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.log.IntLogger;
+
+/**
+ * Re-authenticates an ApiTokenRestConnection in the background shortly before its bearer token expires. All refreshers share a single daemon thread and only hold a weak reference to their connection, so an abandoned connection stops being refreshed.
+ */
+public class BearerTokenRefresher {
+    public static final long DEFAULT_REFRESH_MARGIN_MILLISECONDS = TimeUnit.MINUTES.toMillis(5);
+    public static final long RETRY_DELAY_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "blackduck-bearer-token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final IntLogger logger;
+    private final WeakReference<ApiTokenRestConnection> connectionReference;
+    private final long refreshMarginMillis;
+    private ScheduledFuture<?> scheduledRefresh;
+
+    public BearerTokenRefresher(final IntLogger logger, final ApiTokenRestConnection connection, final long refreshMarginMillis) {
+        this.logger = logger;
+        this.connectionReference = new WeakReference<>(connection);
+        this.refreshMarginMillis = refreshMarginMillis;
+    }
+
+    /**
+     * Replaces any pending refresh with one for the given token. The refresh happens refreshMarginMillis before the token expires, or halfway through its lifetime for tokens that live shorter than twice the margin.
+     */
+    public synchronized void schedule(final BearerToken bearerToken) {
+        cancel();
+        if (!bearerToken.hasExpiration()) {
+            return;
+        }
+        final long remainingMillis = bearerToken.getExpirationTimeMillis() - System.currentTimeMillis();
+        final long delayMillis = remainingMillis - Math.min(refreshMarginMillis, remainingMillis / 2);
+        schedule(bearerToken, delayMillis);
+    }
+
+    public synchronized void cancel() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+    }
+
+    private synchronized void schedule(final BearerToken bearerToken, final long delayMillis) {
+        scheduledRefresh = SCHEDULER.schedule(() -> refresh(bearerToken), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(final BearerToken bearerToken) {
+        final ApiTokenRestConnection connection = connectionReference.get();
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.refreshBearerToken(bearerToken);
+        } catch (final IntegrationException | RuntimeException e) {
+            logger.error("Could not refresh the bearer token: " + e.getMessage());
+            if (System.currentTimeMillis() + RETRY_DELAY_MILLISECONDS < bearerToken.getExpirationTimeMillis()) {
+                schedule(bearerToken, RETRY_DELAY_MILLISECONDS);
+            }
+        }
+    }
+
+}
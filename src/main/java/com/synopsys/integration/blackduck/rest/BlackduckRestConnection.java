@@ -23,23 +23,1097 @@
  */
 package com.synopsys.integration.blackduck.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+
+import com.google.gson.Gson;
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.log.IntLogger;
+import com.synopsys.integration.rest.HttpMethod;
+import com.synopsys.integration.rest.RestConstants;
 import com.synopsys.integration.rest.connection.RestConnection;
+import com.synopsys.integration.rest.exception.IntegrationRestException;
 import com.synopsys.integration.rest.proxy.ProxyInfo;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.request.Response;
 
 public abstract class BlackduckRestConnection extends RestConnection {
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 25;
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService WARM_UP_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "blackduck-connection-warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static SSLContext defaultSslContext;
+    private static SSLContext trustAllSslContext;
+
+    private final CookieStore cookieStore = new BasicCookieStore();
+    private final CommonRequestHeaders commonRequestHeaders = new CommonRequestHeaders();
+    private final ReentrantLock authenticationLock = new ReentrantLock();
+    private volatile long authenticationGeneration;
+    private final Object connectLock = new Object();
+    private volatile boolean connected;
+    // guarded by the connectLock, the client builder keeps its interceptors across connects
+    private boolean responseCountingAdded;
+    // guarded by the authenticationLock
+    private long authenticationDeadlineNanos;
+
+    private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int idleConnectionEvictionSeconds;
+    private int connectionTimeToLiveSeconds;
+    private int keepAliveSeconds = DEFAULT_KEEP_ALIVE_SECONDS;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private ResponseCache responseCache;
+    private RestConnectionMetricsListener metricsListener = RestConnectionMetricsListener.NOOP;
+    private RetryPolicy retryPolicy = RetryPolicy.NO_RETRY;
+    private RequestGovernor requestGovernor;
+    private HttpTransportType httpTransportType = HttpTransportType.HTTP_1_1;
+    private HttpTransport httpTransport;
+    private int warmUpConnectionCount;
+    private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+    private RequestCoalescer requestCoalescer;
+    private CircuitBreaker circuitBreaker;
+    private int connectTimeoutMillis;
+    private int socketTimeoutMillis;
+    private int connectionRequestTimeoutMillis;
+    private long requestDeadlineMillis;
+    private long requestCompressionThresholdBytes;
+
     public BlackduckRestConnection(final IntLogger logger, final URL baseUrl, final int timeout, final ProxyInfo proxyInfo) {
         super(logger, baseUrl, timeout, proxyInfo);
     }
 
     public abstract void authenticateWithBlackduck() throws IntegrationException;
 
+    /**
+     * The credentials the connection authenticates with, cached responses are only shared between connections with the same credentials.
+     */
+    protected abstract String getCredentialsKey();
+
+    /**
+     * Configures the pooled connection manager. Subclasses adding their own configuration must call this first.
+     */
+    @Override
+    public void populateHttpClientBuilder(final HttpClientBuilder httpClientBuilder, final RequestConfig.Builder defaultRequestConfigBuilder) throws IntegrationException {
+        // the timeout applies to all three unless they are set separately
+        if (connectTimeoutMillis > 0) {
+            defaultRequestConfigBuilder.setConnectTimeout(connectTimeoutMillis);
+        }
+        if (socketTimeoutMillis > 0) {
+            defaultRequestConfigBuilder.setSocketTimeout(socketTimeoutMillis);
+        }
+        if (connectionRequestTimeoutMillis > 0) {
+            defaultRequestConfigBuilder.setConnectionRequestTimeout(connectionRequestTimeoutMillis);
+        }
+
+        final SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(getSslContext(), new NoopHostnameVerifier());
+        final Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create().register("http", PlainConnectionSocketFactory.getSocketFactory()).register("https", sslConnectionSocketFactory).build();
+        final long timeToLive = connectionTimeToLiveSeconds > 0 ? connectionTimeToLiveSeconds : -1;
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry, null, null, null, timeToLive, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxTotalConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        httpClientBuilder.setConnectionManager(connectionManager);
+
+        if (idleConnectionEvictionSeconds > 0) {
+            httpClientBuilder.evictIdleConnections(idleConnectionEvictionSeconds, TimeUnit.SECONDS);
+            httpClientBuilder.evictExpiredConnections();
+        }
+
+        // use the Keep-Alive timeout the server sends, otherwise don't keep idle connections longer than keepAliveSeconds
+        httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+            final long serverKeepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAliveMillis > 0 ? serverKeepAliveMillis : TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        });
+
+        // the client advertises gzip and deflate and decompresses while the body is read, count the body bytes before and after that
+        if (!responseCountingAdded) {
+            httpClientBuilder.addInterceptorFirst((HttpResponseInterceptor) (response, context) -> countResponseBytes(response, compressionStatistics::countResponseBytesReceived));
+            httpClientBuilder.addInterceptorLast((HttpResponseInterceptor) (response, context) -> countResponseBytes(response, compressionStatistics::countResponseBytesDecompressed));
+            responseCountingAdded = true;
+        }
+    }
+
+    private void countResponseBytes(final HttpResponse response, final Function<InputStream, InputStream> counter) {
+        if (response.getEntity() != null) {
+            response.setEntity(new HttpEntityWrapper(response.getEntity()) {
+                @Override
+                public InputStream getContent() throws IOException {
+                    return counter.apply(super.getContent());
+                }
+
+                @Override
+                public void writeTo(final OutputStream outputStream) throws IOException {
+                    try (final InputStream inputStream = getContent()) {
+                        IOUtils.copy(inputStream, outputStream);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * A snapshot of the leased, pending and available connections of the pool, all zero before the connection is connected.
+     */
+    public PoolStats getPoolStats() {
+        if (connectionManager == null) {
+            return new PoolStats(0, 0, 0, maxTotalConnections);
+        }
+        return connectionManager.getTotalStats();
+    }
+
+    public IntLogger getLogger() {
+        return logger;
+    }
+
+    /**
+     * The session cookies of the connection, shared with every client created for it.
+     */
+    public CookieStore getCookieStore() {
+        return cookieStore;
+    }
+
+    /**
+     * The SSLContext shared by every connection with the same certificate trust setting, sharing it lets connections to the same Hub resume each other's TLS sessions instead of doing a full handshake.
+     */
+    // RestConnection ignores its own socket factory once a connection manager is set, so the same trust rules are applied here
+    protected SSLContext getSslContext() throws IntegrationException {
+        return getSharedSslContext(isAlwaysTrustServerCertificate());
+    }
+
+    private static synchronized SSLContext getSharedSslContext(final boolean alwaysTrustServerCertificate) throws IntegrationException {
+        SSLContext sslContext = alwaysTrustServerCertificate ? trustAllSslContext : defaultSslContext;
+        if (sslContext == null) {
+            try {
+                if (alwaysTrustServerCertificate) {
+                    sslContext = trustAllSslContext = SSLContextBuilder.create().loadTrustMaterial(new TrustAllStrategy()).build();
+                } else {
+                    sslContext = defaultSslContext = SSLContexts.createDefault();
+                }
+            } catch (KeyManagementException | KeyStoreException | NoSuchAlgorithmException e) {
+                throw new IntegrationException(e.getMessage(), e);
+            }
+        }
+        return sslContext;
+    }
+
+    /**
+     * Builds the client and authenticates, again when already connected. Concurrent calls run one after the other.
+     */
+    @Override
+    public void connect() throws IntegrationException {
+        synchronized (connectLock) {
+            super.connect();
+            connected = true;
+        }
+    }
+
+    /**
+     * Connects unless the connection is already connected. Threads that find it unconnected at the same time share one connect instead of each building a client and authenticating.
+     */
+    public void connectIfNeeded() throws IntegrationException {
+        if (connected) {
+            return;
+        }
+        synchronized (connectLock) {
+            if (!connected) {
+                connect();
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
     @Override
     public void completeConnection() throws IntegrationException {
-        authenticateWithBlackduck();
+        authenticationLock.lock();
+        try {
+            if (httpTransportType != HttpTransportType.HTTP_1_1 && httpTransport == null) {
+                httpTransport = new OkHttpTransport(this);
+            }
+            authenticate();
+            authenticationGeneration++;
+        } finally {
+            authenticationLock.unlock();
+        }
+        if (warmUpConnectionCount > 0) {
+            warmUp(warmUpConnectionCount);
+        }
+    }
+
+    /**
+     * Opens pooled connections to the Hub, including the TLS handshake, until the pool holds connectionCount (at most the per route maximum) so the first requests don't have to.
+     * Failures are logged, the requests will open the connections instead. Connections through a proxy are not pre-opened.
+     */
+    public void warmUp(final int connectionCount) throws IntegrationException {
+        if (getClient() == null) {
+            connectIfNeeded();
+        }
+        if (connectionManager == null || getDefaultRequestConfigBuilder().build().getProxy() != null) {
+            logger.debug("Not pre-opening connections");
+            return;
+        }
+
+        final URL baseUrl = getBaseUrl();
+        final HttpHost target = new HttpHost(baseUrl.getHost(), baseUrl.getPort() == -1 ? baseUrl.getDefaultPort() : baseUrl.getPort(), baseUrl.getProtocol());
+        final HttpRoute route = new HttpRoute(target, null, "https".equalsIgnoreCase(baseUrl.getProtocol()));
+        final int connectTimeoutMillis = getDefaultRequestConfigBuilder().build().getConnectTimeout();
+
+        // lease every connection before opening any, so the pool hands out distinct connections
+        final List<HttpClientConnection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(connectionCount, maxConnectionsPerRoute); i++) {
+                connections.add(connectionManager.requestConnection(route, null).get(connectTimeoutMillis, TimeUnit.MILLISECONDS));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | ConnectionPoolTimeoutException e) {
+            logger.debug("Could not lease a connection to pre-open: " + e.getMessage());
+        }
+
+        final CompletableFuture<?>[] openedConnections = connections.stream()
+                                                             .map(connection -> CompletableFuture.runAsync(() -> openConnection(connection, route, connectTimeoutMillis), WARM_UP_EXECUTOR))
+                                                             .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(openedConnections).join();
+        for (final HttpClientConnection connection : connections) {
+            connectionManager.releaseConnection(connection, null, keepAliveSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private void openConnection(final HttpClientConnection connection, final HttpRoute route, final int connectTimeoutMillis) {
+        if (connection.isOpen()) {
+            return;
+        }
+        try {
+            final HttpClientContext context = HttpClientContext.create();
+            connectionManager.connect(connection, route, connectTimeoutMillis, context);
+            connectionManager.routeComplete(connection, route, context);
+        } catch (final IOException e) {
+            logger.warn("Could not pre-open a connection to " + route.getTargetHost() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the request with the transport of the connection, without any handling of the response. With a {@link CircuitBreaker} set the outcome is recorded, and a CircuitBreakerOpenException is thrown instead while it is open.
+     */
+    protected CloseableHttpResponse sendRequest(final HttpUriRequest request) throws IOException {
+        final HttpEntity uncompressedEntity = compressRequestBody(request);
+        try {
+            return sendWithCircuitBreaker(request);
+        } finally {
+            // the body has been written, a copy of the request made to replay it reads the original body
+            if (uncompressedEntity != null) {
+                ((HttpEntityEnclosingRequest) request).setEntity(uncompressedEntity);
+                request.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            }
+        }
+    }
+
+    private CloseableHttpResponse sendWithCircuitBreaker(final HttpUriRequest request) throws IOException {
+        if (circuitBreaker == null) {
+            return sendWithTransport(request);
+        }
+
+        circuitBreaker.acquirePermission(metricsListener);
+        boolean failed = true;
+        try {
+            final CloseableHttpResponse response = sendWithTransport(request);
+            failed = circuitBreaker.isFailure(response.getStatusLine().getStatusCode());
+            return response;
+        } finally {
+            if (failed) {
+                circuitBreaker.recordFailure(metricsListener);
+            } else {
+                circuitBreaker.recordSuccess(metricsListener);
+            }
+        }
+    }
+
+    private CloseableHttpResponse sendWithTransport(final HttpUriRequest request) throws IOException {
+        if (httpTransport != null) {
+            return httpTransport.execute(request);
+        }
+        return getClient().execute(request);
+    }
+
+    /**
+     * Gzips the body of the request if it is at least requestCompressionThresholdBytes long, or of unknown length. Returns the uncompressed entity to put back once the request is sent, null when the body is sent as it is.
+     */
+    private HttpEntity compressRequestBody(final HttpUriRequest request) {
+        if (requestCompressionThresholdBytes <= 0 || !(request instanceof HttpEntityEnclosingRequest) || request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return null;
+        }
+        final HttpEntityEnclosingRequest entityEnclosingRequest = (HttpEntityEnclosingRequest) request;
+        final HttpEntity entity = entityEnclosingRequest.getEntity();
+        if (entity == null || entity.getContentEncoding() != null) {
+            return null;
+        }
+        if (entity.getContentLength() < 0 || entity.getContentLength() >= requestCompressionThresholdBytes) {
+            entityEnclosingRequest.setEntity(new GzipRequestEntity(entity, compressionStatistics));
+            request.setHeader(HttpHeaders.CONTENT_ENCODING, GzipRequestEntity.GZIP_CONTENT_CODING);
+            return entity;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (httpTransport != null) {
+            httpTransport.close();
+        }
+        super.close();
+    }
+
+    /**
+     * Authenticates and reports the duration to the metrics listener.
+     */
+    protected void authenticate() throws IntegrationException {
+        final long start = System.nanoTime();
+        boolean successful = false;
+        try {
+            authenticateWithBlackduck();
+            successful = true;
+        } finally {
+            metricsListener.authenticationCompleted(successful, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Executes the request, and when the Hub rejects the authentication (see {@link #isAuthenticationFailure(HttpResponse)}) re-authenticates and replays the request once. Concurrent rejections share a single re-authentication.
+     * With a {@link RequestCoalescer} set, concurrent identical GET requests share one call.
+     */
+    @Override
+    public Response executeRequest(final HttpUriRequest request) throws IntegrationException {
+        return executeRequest(request, requestDeadlineMillis);
+    }
+
+    /**
+     * Executes the request with the given timeouts instead of the ones of the connection, for example to fail a latency critical call fast or to give a large transfer more time.
+     */
+    public Response executeRequest(final Request request, final RequestTimeouts requestTimeouts) throws IntegrationException {
+        // the overrides are applied to the default config, which is complete once connected
+        connectIfNeeded();
+        final HttpUriRequest httpRequest = createHttpRequest(request);
+        if (httpRequest instanceof HttpRequestBase) {
+            final HttpRequestBase httpRequestBase = (HttpRequestBase) httpRequest;
+            httpRequestBase.setConfig(requestTimeouts.applyTo(getRequestConfig(httpRequestBase)));
+        }
+        return executeRequest(httpRequest, requestTimeouts.getDeadlineMillis() > 0 ? requestTimeouts.getDeadlineMillis() : requestDeadlineMillis);
+    }
+
+    private Response executeRequest(final HttpUriRequest request, final long deadlineMillis) throws IntegrationException {
+        if (requestCoalescer != null && requestCoalescer.isCoalescable(request)) {
+            return requestCoalescer.execute(request, deadlineMillis, coalescedRequest -> executeUncoalescedRequest(coalescedRequest, deadlineMillis), metricsListener);
+        }
+        return executeUncoalescedRequest(request, deadlineMillis);
+    }
+
+    /**
+     * Executes the request even when an identical one is in flight, the response body is streamed instead of buffered.
+     */
+    Response executeUncoalescedRequest(final HttpUriRequest request) throws IntegrationException {
+        return executeUncoalescedRequest(request, requestDeadlineMillis);
+    }
+
+    private Response executeUncoalescedRequest(final HttpUriRequest request, final long deadlineMillis) throws IntegrationException {
+        final long start = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        logger.trace("starting request: " + request.getURI().toString());
+        Response response = null;
+        Exception exception = null;
+        try {
+            response = handleClientExecution(request, startNanos, deadlineMillis);
+            return response;
+        } catch (final IntegrationException | RuntimeException e) {
+            exception = e;
+            throw e;
+        } finally {
+            recordRequest(request, response, exception, System.nanoTime() - startNanos);
+            final long end = System.currentTimeMillis();
+            logger.trace(String.format("completed request: %s (%d ms)", request.getURI().toString(), end - start));
+        }
+    }
+
+    /**
+     * Executes all requests concurrently, at most as many at once as the pool allows per route, and returns the results in the order of the requests.
+     */
+    public <T> List<BulkRequestResult<T>> executeRequests(final Collection<Request> requests, final ResponseTransformer<T> responseTransformer) throws IntegrationException {
+        return executeRequests(requests, responseTransformer, maxConnectionsPerRoute);
+    }
+
+    public <T> List<BulkRequestResult<T>> executeRequests(final Collection<Request> requests, final ResponseTransformer<T> responseTransformer, final int concurrency) throws IntegrationException {
+        return new BulkRequestExecutor(this, concurrency).executeRequests(requests, responseTransformer);
+    }
+
+    /**
+     * Streams the response body to the destination instead of into memory, for reports, notices files and scan archives. See {@link FileDownloader} for how a broken transfer is resumed.
+     * @return the size of the downloaded file
+     */
+    public long download(final Request request, final Path destination) throws IntegrationException {
+        return download(request, destination, DownloadProgressListener.NOOP);
+    }
+
+    public long download(final Request request, final Path destination, final DownloadProgressListener progressListener) throws IntegrationException {
+        return new FileDownloader(this, progressListener).download(request, destination);
+    }
+
+    /**
+     * Sends the file as the body of the request, read while it is sent. The mime type of the request is the content type of the body.
+     */
+    public Response upload(final Request request, final Path file) throws IntegrationException {
+        try {
+            return executeRequest(new Request.Builder(request).bodyContent(new FileRegionBodyContent(file)).build());
+        } catch (final IOException e) {
+            throw new IntegrationException(String.format("Could not read the size of %s: %s", file, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Sends the stream as the body of the request, with chunked transfer encoding when the length is unknown (-1). See {@link InputStreamBodyContent} for the limits of a stream body.
+     */
+    public Response upload(final Request request, final InputStream inputStream, final long length) throws IntegrationException {
+        return executeRequest(new Request.Builder(request).bodyContent(new InputStreamBodyContent(inputStream, length)).build());
+    }
+
+    /**
+     * Uploads the file in chunks of chunkBytes, at most concurrency chunks at once, see {@link ChunkedFileUploader}. Only use it for endpoints that accept an upload in parts.
+     */
+    public <T> List<T> uploadInChunks(final Request request, final Path file, final long chunkBytes, final int concurrency, final ResponseTransformer<T> responseTransformer) throws IntegrationException {
+        return new ChunkedFileUploader(this, chunkBytes, concurrency).upload(request, file, responseTransformer);
+    }
+
+    /**
+     * Iterates over all items of a Hub list endpoint, see {@link PagedItemIterator}.
+     */
+    public <T> PagedItemIterator<T> getAllItems(final Request request, final Type itemType) {
+        return getAllItems(request, new Gson(), itemType, PagedItemIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    public <T> PagedItemIterator<T> getAllItems(final Request request, final Gson gson, final Type itemType, final int pageSize) {
+        return getAllItems(request, gson, itemType, pageSize, PagedItemIterator.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism how many pages may be fetched concurrently once the size of the collection is known
+     */
+    public <T> PagedItemIterator<T> getAllItems(final Request request, final Gson gson, final Type itemType, final int pageSize, final int parallelism) {
+        return new PagedItemIterator<>(this, request, new PageParser<>(gson, itemType), pageSize, parallelism);
+    }
+
+    public <T> Stream<T> streamAllItems(final Request request, final Type itemType) {
+        final PagedItemIterator<T> pagedItemIterator = getAllItems(request, itemType);
+        return pagedItemIterator.stream();
+    }
+
+    void recordRequest(final HttpUriRequest request, final Response response, final Throwable exception, final long durationNanos) {
+        if (response != null) {
+            metricsListener.requestCompleted(request.getMethod(), request.getURI(), response.getStatusCode(), durationNanos);
+        } else if (exception instanceof IntegrationRestException) {
+            metricsListener.requestCompleted(request.getMethod(), request.getURI(), ((IntegrationRestException) exception).getHttpStatusCode(), durationNanos);
+        } else if (exception instanceof Exception) {
+            metricsListener.requestFailed(request.getMethod(), request.getURI(), (Exception) exception, durationNanos);
+        }
+    }
+
+    /**
+     * The Hub answers 401 for an expired bearer token or session and 403 for a CSRF token that no longer matches the session.
+     * Any other 403 denies a permission, authenticating again would not change the answer.
+     */
+    protected boolean isAuthenticationFailure(final HttpResponse response) throws IOException {
+        final int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == RestConstants.UNAUTHORIZED_401 || (statusCode == RestConstants.FORBIDDEN_403 && isCsrfRejection(response));
+    }
+
+    private boolean isCsrfRejection(final HttpResponse response) throws IOException {
+        if (response.getEntity() == null) {
+            return false;
+        }
+        // buffered so the content can still be read for the error message
+        final BufferedHttpEntity bufferedEntity = new BufferedHttpEntity(response.getEntity());
+        response.setEntity(bufferedEntity);
+        return StringUtils.containsIgnoreCase(EntityUtils.toString(bufferedEntity, StandardCharsets.UTF_8), "CSRF");
+    }
+
+    private Response handleClientExecution(final HttpUriRequest request, final long startNanos, final long deadlineMillis) throws IntegrationException {
+        HttpUriRequest currentRequest = request;
+        if (!connected) {
+            connectIfNeeded();
+            // the request was created without the headers of the authentication
+            currentRequest = copyHttpRequest(request);
+        }
+
+        String cacheKey = null;
+        CachedResponse cachedResponse = null;
+        if (responseCache != null && HttpMethod.GET.name().equals(currentRequest.getMethod()) && !currentRequest.containsHeader(HttpHeaders.RANGE)) {
+            cacheKey = ResponseCache.createKey(currentRequest, getCredentialsKey());
+            cachedResponse = responseCache.get(cacheKey).orElse(null);
+        }
+
+        boolean replayed = false;
+        int attempt = 1;
+        while (true) {
+            final long requestGeneration = authenticationGeneration;
+            if (deadlineMillis > 0) {
+                limitTimeoutsToDeadline(currentRequest, deadlineMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), attempt);
+            }
+            if (cachedResponse != null) {
+                cachedResponse.addConditionalHeaders(currentRequest);
+            }
+            final String urlString = currentRequest.getURI().toString();
+            if (isAlwaysTrustServerCertificate() && currentRequest.getURI().getScheme().equalsIgnoreCase("https")) {
+                logger.debug("Automatically trusting the certificate for " + urlString);
+            }
+            logRequestHeaders(currentRequest);
+            try {
+                final CloseableHttpResponse closeableHttpResponse = executeGoverned(currentRequest, getRemainingMillis(startNanos, deadlineMillis));
+                final Response response = new Response(closeableHttpResponse);
+                final int statusCode = closeableHttpResponse.getStatusLine().getStatusCode();
+                final String statusMessage = closeableHttpResponse.getStatusLine().getReasonPhrase();
+                if (statusCode == RestConstants.NOT_MODIFIED_304 && cachedResponse != null) {
+                    logResponseHeaders(closeableHttpResponse);
+                    closeableHttpResponse.close();
+                    responseCache.recordHit(cachedResponse);
+                    return new Response(cachedResponse.createHttpResponse());
+                }
+                if (statusCode >= RestConstants.OK_200 && statusCode < RestConstants.MULT_CHOICE_300) {
+                    logResponseHeaders(closeableHttpResponse);
+                    if (cacheKey != null) {
+                        return new Response(responseCache.store(cacheKey, closeableHttpResponse, logger));
+                    }
+                    return response;
+                }
+
+                try {
+                    if (!replayed && isAuthenticationFailure(closeableHttpResponse) && isRepeatable(currentRequest)) {
+                        metricsListener.requestRetried(currentRequest.getMethod(), currentRequest.getURI(), statusCode);
+                        reauthenticate(requestGeneration, currentRequest, getRemainingMillis(startNanos, deadlineMillis));
+                        currentRequest = copyHttpRequest(currentRequest);
+                        replayed = true;
+                        continue;
+                    }
+                    if (retryPolicy.isRetryable(currentRequest, statusCode, attempt) && isRepeatable(currentRequest)) {
+                        final long backoffMillis = retryPolicy.getBackoffMillis(closeableHttpResponse, attempt);
+                        if (backoffMillis == RetryPolicy.DO_NOT_RETRY) {
+                            logger.debug(String.format("The Hub answered %s %s for %s, not retrying because it asked to wait longer than the maximum backoff", statusCode, statusMessage, urlString));
+                        } else if (isBeforeDeadline(startNanos, deadlineMillis, backoffMillis)) {
+                            logger.debug(String.format("The Hub answered %s %s for %s, retrying in %d ms", statusCode, statusMessage, urlString, backoffMillis));
+                            metricsListener.requestRetried(currentRequest.getMethod(), currentRequest.getURI(), statusCode);
+                            // release the connection to the pool before waiting
+                            EntityUtils.consumeQuietly(closeableHttpResponse.getEntity());
+                            sleepBeforeRetry(backoffMillis);
+                            currentRequest = copyHttpRequest(currentRequest);
+                            attempt++;
+                            continue;
+                        } else {
+                            logger.debug(String.format("The Hub answered %s %s for %s, not retrying because the deadline would pass", statusCode, statusMessage, urlString));
+                        }
+                    }
+                    final String httpResponseContent = response.getContentString();
+                    throw new IntegrationRestException(statusCode, statusMessage, httpResponseContent, String.format("There was a problem trying to %s this item: %s. Error: %s %s", currentRequest.getMethod(), urlString, statusCode, statusMessage));
+                } finally {
+                    closeableHttpResponse.close();
+                }
+            } catch (final IOException e) {
+                throw new IntegrationException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private boolean isBeforeDeadline(final long startNanos, final long deadlineMillis, final long delayMillis) {
+        return deadlineMillis <= 0 || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + delayMillis < deadlineMillis;
+    }
+
+    /**
+     * The time left until the deadline, at least 1 ms so it is never mistaken for no limit, or 0 without a deadline.
+     */
+    private long getRemainingMillis(final long startNanos, final long deadlineMillis) {
+        if (deadlineMillis <= 0) {
+            return 0;
+        }
+        return Math.max(1, deadlineMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Shortens the timeouts of the next attempt so it can't run past the deadline.
+     */
+    private void limitTimeoutsToDeadline(final HttpUriRequest request, final long remainingMillis, final int attempt) throws IntegrationException {
+        if (remainingMillis <= 0) {
+            throw new IntegrationException(String.format("The deadline to %s %s passed after %d attempts", request.getMethod(), request.getURI(), attempt - 1));
+        }
+        limitTimeouts(request, remainingMillis);
+    }
+
+    private void limitTimeouts(final HttpUriRequest request, final long remainingMillis) {
+        if (request instanceof HttpRequestBase) {
+            final HttpRequestBase httpRequestBase = (HttpRequestBase) request;
+            final RequestConfig requestConfig = getRequestConfig(httpRequestBase);
+            final int remaining = (int) Math.min(remainingMillis, Integer.MAX_VALUE);
+            httpRequestBase.setConfig(RequestConfig.copy(requestConfig)
+                                          .setConnectTimeout(limitTimeout(requestConfig.getConnectTimeout(), remaining))
+                                          .setSocketTimeout(limitTimeout(requestConfig.getSocketTimeout(), remaining))
+                                          .setConnectionRequestTimeout(limitTimeout(requestConfig.getConnectionRequestTimeout(), remaining))
+                                          .build());
+        }
+    }
+
+    private int limitTimeout(final int timeoutMillis, final int remainingMillis) {
+        // 0 and below mean no timeout
+        return timeoutMillis > 0 ? Math.min(timeoutMillis, remainingMillis) : remainingMillis;
+    }
+
+    private RequestConfig getRequestConfig(final HttpRequestBase request) {
+        return request.getConfig() != null ? request.getConfig() : getDefaultRequestConfigBuilder().build();
+    }
+
+    /**
+     * Only the first thread to see a rejected request re-authenticates. Threads that sent their request before that re-authentication completed, or built it from headers that have since been replaced, just replay with the current headers.
+     */
+    protected void reauthenticate(final long requestGeneration, final HttpUriRequest rejectedRequest) throws IntegrationException {
+        reauthenticate(requestGeneration, rejectedRequest, 0);
+    }
+
+    /**
+     * @param timeoutMillis how long waiting for another thread's re-authentication and authenticating may take, 0 for no limit
+     */
+    protected void reauthenticate(final long requestGeneration, final HttpUriRequest rejectedRequest, final long timeoutMillis) throws IntegrationException {
+        lockAuthentication(rejectedRequest, timeoutMillis);
+        try {
+            if (requestGeneration == authenticationGeneration && hasCurrentCommonRequestHeaders(rejectedRequest)) {
+                logger.debug("The Hub rejected the authentication, re-authenticating");
+                authenticationDeadlineNanos = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+                try {
+                    authenticate();
+                } finally {
+                    authenticationDeadlineNanos = 0;
+                }
+                authenticationGeneration++;
+            }
+        } finally {
+            authenticationLock.unlock();
+        }
+    }
+
+    private void lockAuthentication(final HttpUriRequest rejectedRequest, final long timeoutMillis) throws IntegrationException {
+        if (timeoutMillis <= 0) {
+            authenticationLock.lock();
+            return;
+        }
+        try {
+            if (!authenticationLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IntegrationException(String.format("The deadline to %s %s passed while waiting for the re-authentication", rejectedRequest.getMethod(), rejectedRequest.getURI()));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while waiting for the re-authentication", e);
+        }
+    }
+
+    /**
+     * Sends a request of {@link #authenticateWithBlackduck()}. During a re-authentication for a request with a deadline its timeouts are shortened so it ends before that deadline.
+     */
+    protected CloseableHttpResponse sendAuthenticationRequest(final HttpUriRequest request) throws IntegrationException, IOException {
+        if (authenticationDeadlineNanos > 0) {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(authenticationDeadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw new IntegrationException(String.format("The deadline passed before re-authenticating at %s", request.getURI()));
+            }
+            limitTimeouts(request, remainingMillis);
+        }
+        return sendRequest(request);
+    }
+
+    private boolean hasCurrentCommonRequestHeaders(final HttpUriRequest request) {
+        for (final Map.Entry<String, String> commonRequestHeader : commonRequestHeaders.getSnapshot().entrySet()) {
+            final Header header = request.getFirstHeader(commonRequestHeader.getKey());
+            if (header == null || !commonRequestHeader.getValue().equals(header.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected long getAuthenticationGeneration() {
+        return authenticationGeneration;
+    }
+
+    /**
+     * @param timeoutMillis how long to wait for the request governor, 0 for no limit
+     */
+    private CloseableHttpResponse executeGoverned(final HttpUriRequest request, final long timeoutMillis) throws IntegrationException, IOException {
+        if (requestGovernor == null) {
+            return sendRequest(request);
+        }
+
+        final long waitNanos = requestGovernor.acquire(timeoutMillis);
+        metricsListener.requestAdmitted(request.getMethod(), request.getURI(), waitNanos, requestGovernor.getQueueDepth());
+        final long start = System.nanoTime();
+        final CloseableHttpResponse response;
+        try {
+            response = sendRequest(request);
+        } catch (final IOException | RuntimeException e) {
+            requestGovernor.release(-1, System.nanoTime() - start);
+            throw e;
+        }
+        // the latency is measured up to the headers, the request stays in flight until the body was read
+        final int statusCode = response.getStatusLine().getStatusCode();
+        final long latencyNanos = System.nanoTime() - start;
+        return new GovernedHttpResponse(response, () -> requestGovernor.release(statusCode, latencyNanos));
+    }
+
+    private void sleepBeforeRetry(final long backoffMillis) throws IntegrationException {
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while waiting to retry the request", e);
+        }
+    }
+
+    protected boolean isRepeatable(final HttpUriRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * Same as the RestConnection implementation, the additional headers take precedence over the common headers, but the common headers are read from one snapshot.
+     */
+    @Override
+    public RequestBuilder createRequestBuilder(final HttpMethod method, final Map<String, String> additionalHeaders) throws IntegrationException {
+        if (method == null) {
+            throw new IntegrationException("Missing field 'method'");
+        }
+        final RequestBuilder requestBuilder = RequestBuilder.create(method.name());
+        for (final Map.Entry<String, String> header : commonRequestHeaders.getSnapshot().entrySet()) {
+            if (additionalHeaders == null || !additionalHeaders.containsKey(header.getKey())) {
+                requestBuilder.addHeader(header.getKey(), header.getValue());
+            }
+        }
+        if (additionalHeaders != null) {
+            for (final Map.Entry<String, String> header : additionalHeaders.entrySet()) {
+                requestBuilder.addHeader(header.getKey(), header.getValue());
+            }
+        }
+        if (getBaseUrl() != null) {
+            try {
+                requestBuilder.setUri(getBaseUrl().toURI());
+            } catch (final URISyntaxException e) {
+                throw new IntegrationException(e.getMessage(), e);
+            }
+        }
+        return requestBuilder;
+    }
+
+    @Override
+    public HttpUriRequest createHttpRequest(final Request request) throws IntegrationException {
+        // the common headers of the RestConnection are never set, they are all kept in the snapshot
+        final Map<String, String> headers = commonRequestHeaders.getSnapshot();
+        final HttpUriRequest httpRequest = super.createHttpRequest(request);
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            httpRequest.addHeader(header.getKey(), header.getValue());
+        }
+        return httpRequest;
+    }
+
+    /**
+     * Unlike the RestConnection implementation the common headers replace any stale values the request already carries instead of being added next to them.
+     */
+    @Override
+    public HttpUriRequest copyHttpRequest(final HttpUriRequest request) throws IntegrationException {
+        final RequestBuilder requestBuilder = RequestBuilder.copy(request);
+        for (final Map.Entry<String, String> header : commonRequestHeaders.getSnapshot().entrySet()) {
+            requestBuilder.setHeader(header.getKey(), header.getValue());
+        }
+        return requestBuilder.build();
+    }
+
+    /**
+     * The common request headers, changes through the returned map are published atomically as a new snapshot.
+     */
+    @Override
+    public Map<String, String> getCommonRequestHeaders() {
+        return commonRequestHeaders;
+    }
+
+    @Override
+    public void addCommonRequestHeader(final String key, final String value) {
+        commonRequestHeaders.put(key, value);
+    }
+
+    /**
+     * Puts all of the given headers into the common request headers at once, so requests being created concurrently see either all of the old or all of the new values.
+     */
+    @Override
+    public void addCommonRequestHeaders(final Map<String, String> headers) {
+        commonRequestHeaders.putAll(headers);
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(final int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getIdleConnectionEvictionSeconds() {
+        return idleConnectionEvictionSeconds;
+    }
+
+    /**
+     * @param idleConnectionEvictionSeconds connections idle longer than this are closed by a background thread, 0 disables eviction
+     */
+    public void setIdleConnectionEvictionSeconds(final int idleConnectionEvictionSeconds) {
+        this.idleConnectionEvictionSeconds = idleConnectionEvictionSeconds;
+    }
+
+    public int getConnectionTimeToLiveSeconds() {
+        return connectionTimeToLiveSeconds;
+    }
+
+    /**
+     * @param connectionTimeToLiveSeconds connections are never reused after this long, 0 lets them live forever
+     */
+    public void setConnectionTimeToLiveSeconds(final int connectionTimeToLiveSeconds) {
+        this.connectionTimeToLiveSeconds = connectionTimeToLiveSeconds;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(final int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Revalidates GET requests against the given cache, null (the default) disables caching.
+     */
+    public void setResponseCache(final ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @param retryPolicy when to retry requests the Hub could not serve, null to never retry like the default {@link RetryPolicy#NO_RETRY}
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.NO_RETRY : retryPolicy;
+    }
+
+    public RequestGovernor getRequestGovernor() {
+        return requestGovernor;
+    }
+
+    /**
+     * @param requestGovernor limits the requests to the Hub, null (the default) to send requests without limits
+     */
+    public void setRequestGovernor(final RequestGovernor requestGovernor) {
+        this.requestGovernor = requestGovernor;
+    }
+
+    public HttpTransportType getHttpTransportType() {
+        return httpTransportType;
+    }
+
+    public void setHttpTransportType(final HttpTransportType httpTransportType) {
+        this.httpTransportType = httpTransportType;
+    }
+
+    /**
+     * The transport used instead of the Apache HttpClient, null for {@link HttpTransportType#HTTP_1_1} or before connecting.
+     */
+    public HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
+    public int getWarmUpConnectionCount() {
+        return warmUpConnectionCount;
+    }
+
+    /**
+     * @param warmUpConnectionCount the number of connections to open when connecting, see {@link #warmUp(int)}
+     */
+    public void setWarmUpConnectionCount(final int warmUpConnectionCount) {
+        this.warmUpConnectionCount = warmUpConnectionCount;
+    }
+
+    /**
+     * The response and compressed request body bytes of this connection, before and after compression.
+     */
+    public CompressionStatistics getCompressionStatistics() {
+        return compressionStatistics;
+    }
+
+    public long getRequestCompressionThresholdBytes() {
+        return requestCompressionThresholdBytes;
+    }
+
+    /**
+     * @param requestCompressionThresholdBytes request bodies of at least this size are sent gzipped, 0 (the default) to never compress them. Only enable it for Hub endpoints that accept compressed uploads.
+     */
+    public void setRequestCompressionThresholdBytes(final long requestCompressionThresholdBytes) {
+        this.requestCompressionThresholdBytes = requestCompressionThresholdBytes;
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * @param requestCoalescer shares one call between concurrent identical GET requests, null (the default) to send every request
+     */
+    public void setRequestCoalescer(final RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @param circuitBreaker fails requests at once while the Hub keeps failing, null (the default) to always send them
+     */
+    public void setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @param connectTimeoutMillis how long to wait for a connection to be established, 0 (the default) to use the timeout
+     */
+    public void setConnectTimeoutMillis(final int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * @param socketTimeoutMillis how long to wait for data from the Hub, 0 (the default) to use the timeout
+     */
+    public void setSocketTimeoutMillis(final int socketTimeoutMillis) {
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * @param connectionRequestTimeoutMillis how long to wait for a connection from the pool, 0 (the default) to use the timeout
+     */
+    public void setConnectionRequestTimeoutMillis(final int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
+
+    public long getRequestDeadlineMillis() {
+        return requestDeadlineMillis;
+    }
+
+    /**
+     * @param requestDeadlineMillis how long a request may take in total, including waiting for the request governor, re-authentication, retries and the waits between them, 0 (the default) for no limit
+     */
+    public void setRequestDeadlineMillis(final long requestDeadlineMillis) {
+        this.requestDeadlineMillis = requestDeadlineMillis;
+    }
+
+    public RestConnectionMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * @param metricsListener the listener to report request and authentication timings to, null to report nothing
+     */
+    public void setMetricsListener(final RestConnectionMetricsListener metricsListener) {
+        this.metricsListener = metricsListener == null ? RestConnectionMetricsListener.NOOP : metricsListener;
     }
 
 }
@@ -0,0 +1,405 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.synopsys.integration.blackduck.validator.ValidationCache;
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.connection.AbstractRestConnectionBuilder;
+import com.synopsys.integration.validator.ValidationResults;
+
+/**
+ * Settings shared by the builders of every kind of BlackduckRestConnection.
+ */
+public abstract class BlackduckRestConnectionBuilder<C extends BlackduckRestConnection> extends AbstractRestConnectionBuilder<C> {
+    private static final ExecutorService CONNECT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "blackduck-connect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int maxTotalConnections = BlackduckRestConnection.DEFAULT_MAX_TOTAL_CONNECTIONS;
+    private int maxConnectionsPerRoute = BlackduckRestConnection.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int idleConnectionEvictionSeconds;
+    private int connectionTimeToLiveSeconds;
+    private int keepAliveSeconds = BlackduckRestConnection.DEFAULT_KEEP_ALIVE_SECONDS;
+    private int asyncIoThreadCount = AsyncBlackduckRestConnection.DEFAULT_IO_THREAD_COUNT;
+    private ResponseCache responseCache;
+    private RestConnectionMetricsListener metricsListener = RestConnectionMetricsListener.NOOP;
+    private RetryPolicy retryPolicy = RetryPolicy.NO_RETRY;
+    private double maxRequestsPerSecond;
+    private int maxRequestsInFlight;
+    private HttpTransportType httpTransportType = HttpTransportType.HTTP_1_1;
+    private int warmUpConnectionCount;
+    private long requestCompressionThresholdBytes;
+    private boolean coalesceConcurrentRequests;
+    private int circuitBreakerFailureThreshold;
+    private long circuitBreakerOpenMillis = CircuitBreaker.DEFAULT_OPEN_MILLISECONDS;
+    private int connectTimeoutMillis;
+    private int socketTimeoutMillis;
+    private int connectionRequestTimeoutMillis;
+    private long requestDeadlineMillis;
+    private ValidationCache validationCache = ValidationCache.getSharedInstance();
+
+    /**
+     * Same as {@link AbstractRestConnectionBuilder#build()}, but a configuration that was validated before is not validated again, see {@link #setValidationCache(ValidationCache)}.
+     */
+    @Override
+    public C build() throws IllegalStateException {
+        final ValidationResults results = validate();
+        if (!results.isSuccess()) {
+            throw new IllegalStateException("Invalid Configuration: " + results.getAllResultString());
+        }
+        return buildObject();
+    }
+
+    @Override
+    public boolean isValid() {
+        return validate().isSuccess();
+    }
+
+    /**
+     * The results of validating the configuration, they may be shared with other builders and must not be modified.
+     */
+    public ValidationResults validate() {
+        if (validationCache == null) {
+            return createValidator().assertValid();
+        }
+        // the validators check the settings of the connection key and the logger
+        return validationCache.validate(createConnectionKey() + '|' + (getLogger() != null), this::createValidator);
+    }
+
+    @Override
+    public C buildObject() {
+        final C connection = super.buildObject();
+        connection.setMaxTotalConnections(getMaxTotalConnections());
+        connection.setMaxConnectionsPerRoute(getMaxConnectionsPerRoute());
+        connection.setIdleConnectionEvictionSeconds(getIdleConnectionEvictionSeconds());
+        connection.setConnectionTimeToLiveSeconds(getConnectionTimeToLiveSeconds());
+        connection.setKeepAliveSeconds(getKeepAliveSeconds());
+        connection.setResponseCache(getResponseCache());
+        connection.setMetricsListener(getMetricsListener());
+        connection.setRetryPolicy(getRetryPolicy());
+        connection.setHttpTransportType(getHttpTransportType());
+        connection.setWarmUpConnectionCount(getWarmUpConnectionCount());
+        connection.setRequestCompressionThresholdBytes(getRequestCompressionThresholdBytes());
+        connection.setConnectTimeoutMillis(getConnectTimeoutMillis());
+        connection.setSocketTimeoutMillis(getSocketTimeoutMillis());
+        connection.setConnectionRequestTimeoutMillis(getConnectionRequestTimeoutMillis());
+        connection.setRequestDeadlineMillis(getRequestDeadlineMillis());
+        if (getCircuitBreakerFailureThreshold() > 0) {
+            connection.setCircuitBreaker(CircuitBreaker.getShared(connection.getBaseUrl(), getCircuitBreakerFailureThreshold(), getCircuitBreakerOpenMillis()));
+        }
+        if (isCoalesceConcurrentRequests()) {
+            connection.setRequestCoalescer(new RequestCoalescer());
+        }
+        if (getMaxRequestsPerSecond() > 0 || getMaxRequestsInFlight() > 0) {
+            connection.setRequestGovernor(RequestGovernor.getShared(connection.getBaseUrl(), getMaxRequestsPerSecond(), getMaxRequestsInFlight(), connection.getLogger()));
+        }
+        return connection;
+    }
+
+    /**
+     * Identifies the connections this builder creates, connections with the same key can be shared through a {@link RestConnectionRegistry}. The key covers every setting of the connection, so a shared connection always behaves as its builder asked for.
+     * Secrets are only part of the key as a hash, caches and listeners by identity.
+     */
+    public String createConnectionKey() {
+        final String secrets = ConnectionKeys.join(getCredentialsKey(), getProxyPassword());
+        final RetryPolicy retryPolicy = getRetryPolicy();
+        final String retryPolicyKey = retryPolicy == null ? null
+                                          : ConnectionKeys.join(retryPolicy.getMaxAttempts(), retryPolicy.getInitialBackoffMillis(), retryPolicy.getMaxBackoffMillis(), new TreeSet<>(retryPolicy.getRetryableStatusCodes()));
+        return ConnectionKeys.join(getClass().getName(), getBaseUrl(), getTimeout(), getConnectTimeoutMillis(), getSocketTimeoutMillis(), getConnectionRequestTimeoutMillis(), getRequestDeadlineMillis(), isAlwaysTrustServerCertificate(),
+                getProxyHost(), getProxyPort(), getProxyUsername(), getProxyIgnoreHosts(), getProxyNtlmDomain(), getProxyNtlmWorkstation(), createHeadersKey(), DigestUtils.sha256Hex(secrets),
+                getMaxTotalConnections(), getMaxConnectionsPerRoute(), getIdleConnectionEvictionSeconds(), getConnectionTimeToLiveSeconds(), getKeepAliveSeconds(), getWarmUpConnectionCount(), getHttpTransportType(), retryPolicyKey,
+                ConnectionKeys.identity(getResponseCache()), ConnectionKeys.identity(getMetricsListener()), getMaxRequestsPerSecond(), getMaxRequestsInFlight(), getCircuitBreakerFailureThreshold(), getCircuitBreakerOpenMillis(),
+                isCoalesceConcurrentRequests(), getRequestCompressionThresholdBytes());
+    }
+
+    private String createHeadersKey() {
+        if (getCommonRequestHeaders() == null) {
+            return null;
+        }
+        // a null header name sorts first instead of failing the key, ConnectionKeys keeps it apart from any real name
+        final Map<String, String> sortedHeaders = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        sortedHeaders.putAll(getCommonRequestHeaders());
+        final List<String> headerParts = new ArrayList<>();
+        for (final Map.Entry<String, String> header : sortedHeaders.entrySet()) {
+            headerParts.add(header.getKey());
+            headerParts.add(header.getValue());
+        }
+        return ConnectionKeys.join(headerParts.toArray());
+    }
+
+    /**
+     * The credentials the connection authenticates with.
+     */
+    protected abstract String getCredentialsKey();
+
+    /**
+     * Builds a connection and connects it in the background, so authenticating and opening the warm-up connections overlap with other startup work.
+     * The future completes exceptionally with an {@link UncheckedIntegrationException} when connecting fails.
+     */
+    public CompletableFuture<C> buildAndConnectAsync() throws IllegalStateException {
+        final C connection = build();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                connection.connect();
+                return connection;
+            } catch (final IntegrationException e) {
+                throw new UncheckedIntegrationException(e);
+            }
+        }, CONNECT_EXECUTOR);
+    }
+
+    /**
+     * Builds a connection the same way as {@link #build()} and wraps it for non-blocking requests. Closing the async connection closes the wrapped one.
+     */
+    public AsyncBlackduckRestConnection buildAsync() throws IllegalStateException {
+        return new AsyncBlackduckRestConnection(build(), getAsyncIoThreadCount(), true);
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(final int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getIdleConnectionEvictionSeconds() {
+        return idleConnectionEvictionSeconds;
+    }
+
+    public void setIdleConnectionEvictionSeconds(final int idleConnectionEvictionSeconds) {
+        this.idleConnectionEvictionSeconds = idleConnectionEvictionSeconds;
+    }
+
+    public int getConnectionTimeToLiveSeconds() {
+        return connectionTimeToLiveSeconds;
+    }
+
+    public void setConnectionTimeToLiveSeconds(final int connectionTimeToLiveSeconds) {
+        this.connectionTimeToLiveSeconds = connectionTimeToLiveSeconds;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(final int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public int getAsyncIoThreadCount() {
+        return asyncIoThreadCount;
+    }
+
+    public void setAsyncIoThreadCount(final int asyncIoThreadCount) {
+        this.asyncIoThreadCount = asyncIoThreadCount;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(final ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public RestConnectionMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    public void setMetricsListener(final RestConnectionMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    /**
+     * Limits the requests of every connection to this Hub, see {@link RequestGovernor}. The first connection built for a Hub decides its budget.
+     */
+    public void setMaxRequestsPerSecond(final double maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    public int getMaxRequestsInFlight() {
+        return maxRequestsInFlight;
+    }
+
+    /**
+     * Limits the concurrent requests of every connection to this Hub, see {@link RequestGovernor}. The first connection built for a Hub decides its budget.
+     */
+    public void setMaxRequestsInFlight(final int maxRequestsInFlight) {
+        this.maxRequestsInFlight = maxRequestsInFlight;
+    }
+
+    public HttpTransportType getHttpTransportType() {
+        return httpTransportType;
+    }
+
+    public void setHttpTransportType(final HttpTransportType httpTransportType) {
+        this.httpTransportType = httpTransportType;
+    }
+
+    public int getWarmUpConnectionCount() {
+        return warmUpConnectionCount;
+    }
+
+    /**
+     * Pre-opens this many pooled connections when the connection connects, see {@link BlackduckRestConnection#warmUp(int)}.
+     */
+    public void setWarmUpConnectionCount(final int warmUpConnectionCount) {
+        this.warmUpConnectionCount = warmUpConnectionCount;
+    }
+
+    public long getRequestCompressionThresholdBytes() {
+        return requestCompressionThresholdBytes;
+    }
+
+    /**
+     * Gzips request bodies of at least this size, see {@link BlackduckRestConnection#setRequestCompressionThresholdBytes(long)}.
+     */
+    public void setRequestCompressionThresholdBytes(final long requestCompressionThresholdBytes) {
+        this.requestCompressionThresholdBytes = requestCompressionThresholdBytes;
+    }
+
+    public boolean isCoalesceConcurrentRequests() {
+        return coalesceConcurrentRequests;
+    }
+
+    /**
+     * Lets concurrent identical GET requests share one call to the Hub, see {@link RequestCoalescer}.
+     */
+    public void setCoalesceConcurrentRequests(final boolean coalesceConcurrentRequests) {
+        this.coalesceConcurrentRequests = coalesceConcurrentRequests;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Opens the {@link CircuitBreaker} shared by the connections to this Hub after this many consecutive failures, 0 (the default) for no circuit breaker. The first connection built for a Hub decides its settings.
+     */
+    public void setCircuitBreakerFailureThreshold(final int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * How long an open circuit breaker rejects requests before it lets a probe through.
+     */
+    public void setCircuitBreakerOpenMillis(final long circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for a connection to the Hub to be established, 0 (the default) to use the timeout.
+     */
+    public void setConnectTimeoutMillis(final int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for data from the Hub, 0 (the default) to use the timeout.
+     */
+    public void setSocketTimeoutMillis(final int socketTimeoutMillis) {
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for a connection from the pool, 0 (the default) to use the timeout.
+     */
+    public void setConnectionRequestTimeoutMillis(final int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
+
+    public long getRequestDeadlineMillis() {
+        return requestDeadlineMillis;
+    }
+
+    /**
+     * How long a request may take in total, including retries, 0 (the default) for no limit. Single requests can override it with {@link RequestTimeouts}.
+     */
+    public void setRequestDeadlineMillis(final long requestDeadlineMillis) {
+        this.requestDeadlineMillis = requestDeadlineMillis;
+    }
+
+    public ValidationCache getValidationCache() {
+        return validationCache;
+    }
+
+    /**
+     * @param validationCache where to remember validated configurations, the shared instance by default, or null to validate on every build
+     */
+    public void setValidationCache(final ValidationCache validationCache) {
+        this.validationCache = validationCache;
+    }
+
+}
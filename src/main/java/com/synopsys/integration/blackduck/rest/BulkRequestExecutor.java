@@ -0,0 +1,153 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.request.Response;
+
+/**
+ * Runs many requests through one BlackduckRestConnection at once. Each request gets its own virtual thread when the JVM supports them (Java 21+), otherwise a fixed pool of platform threads is used. Either way at most concurrency requests are in flight.
+ */
+public class BulkRequestExecutor {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private final BlackduckRestConnection restConnection;
+    private final int concurrency;
+
+    public BulkRequestExecutor(final BlackduckRestConnection restConnection, final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("The concurrency must be at least 1.");
+        }
+        this.restConnection = restConnection;
+        this.concurrency = concurrency;
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return one result per request, in the order the requests were given
+     */
+    public <T> List<BulkRequestResult<T>> executeRequests(final Collection<Request> requests, final ResponseTransformer<T> responseTransformer) throws IntegrationException {
+        final List<BulkRequestResult<T>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(null);
+        }
+        executeRequests(requests, responseTransformer, result -> results.set(result.getIndex(), result));
+        return results;
+    }
+
+    /**
+     * Hands each result to the consumer as soon as its request completes. The consumer is always called on the calling thread.
+     */
+    public <T> void executeRequests(final Collection<Request> requests, final ResponseTransformer<T> responseTransformer, final Consumer<BulkRequestResult<T>> resultConsumer) throws IntegrationException {
+        // connect once here instead of in every worker
+        restConnection.connectIfNeeded();
+        final ExecutorService executorService = createExecutorService();
+        try {
+            final Semaphore inFlight = new Semaphore(concurrency);
+            final CompletionService<BulkRequestResult<T>> completionService = new ExecutorCompletionService<>(executorService);
+            int index = 0;
+            for (final Request request : requests) {
+                final int requestIndex = index++;
+                completionService.submit(() -> {
+                    inFlight.acquire();
+                    try {
+                        return executeRequest(requestIndex, request, responseTransformer);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            for (int i = 0; i < requests.size(); i++) {
+                resultConsumer.accept(takeResult(completionService));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private <T> BulkRequestResult<T> executeRequest(final int index, final Request request, final ResponseTransformer<T> responseTransformer) {
+        try (final Response response = restConnection.executeRequest(request)) {
+            return new BulkRequestResult<>(index, request, responseTransformer.transform(response), null);
+        } catch (final IntegrationException e) {
+            return new BulkRequestResult<>(index, request, null, e);
+        } catch (final IOException | RuntimeException e) {
+            return new BulkRequestResult<>(index, request, null, new IntegrationException(e.getMessage(), e));
+        }
+    }
+
+    private <T> BulkRequestResult<T> takeResult(final CompletionService<BulkRequestResult<T>> completionService) throws IntegrationException {
+        try {
+            final Future<BulkRequestResult<T>> completed = completionService.take();
+            return completed.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while waiting for the bulk requests", e);
+        } catch (final ExecutionException e) {
+            throw new IntegrationException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private ExecutorService createExecutorService() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (final ReflectiveOperationException e) {
+                restConnection.getLogger().debug("Could not create a virtual thread executor, falling back to platform threads: " + e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            final Thread thread = new Thread(runnable, "blackduck-bulk-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
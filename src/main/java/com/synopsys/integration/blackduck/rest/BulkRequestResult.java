@@ -0,0 +1,65 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.request.Request;
+
+public class BulkRequestResult<T> {
+    private final int index;
+    private final Request request;
+    private final T result;
+    private final IntegrationException exception;
+
+    public BulkRequestResult(final int index, final Request request, final T result, final IntegrationException exception) {
+        this.index = index;
+        this.request = request;
+        this.result = result;
+        this.exception = exception;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /**
+     * The position of the request in the collection that was submitted.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    public T getResult() {
+        return result;
+    }
+
+    public IntegrationException getException() {
+        return exception;
+    }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+
+/**
+ * A buffered response kept by the {@link ResponseCache} together with the validators (ETag and Last-Modified) needed to revalidate it.
+ */
+public class CachedResponse {
+    private final int statusCode;
+    private final String reasonPhrase;
+    private final Header[] headers;
+    private final byte[] body;
+
+    public CachedResponse(final int statusCode, final String reasonPhrase, final Header[] headers, final byte[] body) {
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public static CachedResponse readFrom(final DataInputStream inputStream) throws IOException {
+        final int statusCode = inputStream.readInt();
+        final String reasonPhrase = inputStream.readUTF();
+        final Header[] headers = new Header[inputStream.readInt()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = new BasicHeader(inputStream.readUTF(), inputStream.readUTF());
+        }
+        final byte[] body = new byte[inputStream.readInt()];
+        inputStream.readFully(body);
+        return new CachedResponse(statusCode, reasonPhrase, headers, body);
+    }
+
+    public void writeTo(final DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(statusCode);
+        outputStream.writeUTF(reasonPhrase == null ? "" : reasonPhrase);
+        outputStream.writeInt(headers.length);
+        for (final Header header : headers) {
+            outputStream.writeUTF(header.getName());
+            outputStream.writeUTF(header.getValue());
+        }
+        outputStream.writeInt(body.length);
+        outputStream.write(body);
+    }
+
+    /**
+     * Asks the server to only send the resource again if it changed since this response.
+     */
+    public void addConditionalHeaders(final HttpRequest request) {
+        final String entityTag = getHeaderValue(HttpHeaders.ETAG);
+        if (entityTag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, entityTag);
+        }
+        final String lastModified = getHeaderValue(HttpHeaders.LAST_MODIFIED);
+        if (lastModified != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    public CloseableHttpResponse createHttpResponse() {
+        final BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, reasonPhrase);
+        httpResponse.setHeaders(headers);
+        httpResponse.setEntity(createEntity());
+        return new BasicCloseableHttpResponse(httpResponse);
+    }
+
+    public ByteArrayEntity createEntity() {
+        final ByteArrayEntity entity = new ByteArrayEntity(body);
+        final String contentType = getHeaderValue(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            entity.setContentType(contentType);
+        }
+        return entity;
+    }
+
+    public String getHeaderValue(final String name) {
+        for (final Header header : headers) {
+            if (header.getName().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    public Header[] getHeaders() {
+        return headers;
+    }
+
+    public int getBodyLength() {
+        return body.length;
+    }
+
+}
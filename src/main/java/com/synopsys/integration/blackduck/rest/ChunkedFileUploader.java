@@ -0,0 +1,94 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.HttpHeaders;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.request.Request;
+
+/**
+ * Uploads a file as concurrent requests of one chunk each, for endpoints that assemble an upload from parts. Every chunk request is a copy of the given request with a {@link FileRegionBodyContent} body and a Content-Range header naming its bytes.
+ */
+public class ChunkedFileUploader {
+    private final BlackduckRestConnection restConnection;
+    private final long chunkBytes;
+    private final int concurrency;
+
+    public ChunkedFileUploader(final BlackduckRestConnection restConnection, final long chunkBytes, final int concurrency) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1 byte.");
+        }
+        this.restConnection = restConnection;
+        this.chunkBytes = chunkBytes;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return one result per chunk, in the order of the chunks
+     * @throws IntegrationException when any chunk could not be uploaded, after all chunks were tried
+     */
+    public <T> List<T> upload(final Request request, final Path file, final ResponseTransformer<T> responseTransformer) throws IntegrationException {
+        final long fileSize;
+        try {
+            fileSize = Files.size(file);
+        } catch (final IOException e) {
+            throw new IntegrationException(String.format("Could not read the size of %s: %s", file, e.getMessage()), e);
+        }
+
+        final List<Request> chunkRequests = new ArrayList<>();
+        for (long position = 0; position < fileSize || chunkRequests.isEmpty(); position += chunkBytes) {
+            final long length = Math.min(chunkBytes, fileSize - position);
+            final String contentRange = length > 0 ? String.format("bytes %d-%d/%d", position, position + length - 1, fileSize) : "bytes */0";
+            chunkRequests.add(new Request.Builder(request)
+                                  .addAdditionalHeader(HttpHeaders.CONTENT_RANGE, contentRange)
+                                  .bodyContent(new FileRegionBodyContent(file, position, length))
+                                  .build());
+        }
+
+        final List<BulkRequestResult<T>> results = new BulkRequestExecutor(restConnection, concurrency).executeRequests(chunkRequests, responseTransformer);
+        final List<T> chunkResults = new ArrayList<>(results.size());
+        IntegrationException failure = null;
+        for (final BulkRequestResult<T> result : results) {
+            if (result.isSuccess()) {
+                chunkResults.add(result.getResult());
+            } else if (failure == null) {
+                failure = new IntegrationException(String.format("Could not upload chunk %d of %s: %s", result.getIndex() + 1, file, result.getException().getMessage()), result.getException());
+            } else {
+                failure.addSuppressed(result.getException());
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return chunkResults;
+    }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.synopsys.integration.rest.RestConstants;
+
+/**
+ * Stops sending requests to a Hub that keeps failing, so callers fail at once instead of each waiting out the timeout. Connections share the breaker of their Hub through {@link #getShared(URL, int, long)}.
+ * After failureThreshold consecutive failures (no response, or a 502, 503 or 504) the breaker opens and rejects every request. Once openMillis have passed it is half-open and lets a single probe through: a response closes it again, another failure keeps it open for openMillis more.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+    public static final Set<Integer> FAILURE_STATUS_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(502, RestConstants.UNAVAILABLE_503, 504)));
+
+    private static final ConcurrentMap<String, CircuitBreaker> SHARED_CIRCUIT_BREAKERS = new ConcurrentHashMap<>();
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedNanos;
+    private boolean probeInFlight;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final Map<State, LongAdder> transitionCounts = new EnumMap<>(State.class);
+
+    public CircuitBreaker(final String name, final int failureThreshold, final long openMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("The failure threshold must be at least 1.");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        for (final State transitionState : State.values()) {
+            transitionCounts.put(transitionState, new LongAdder());
+        }
+    }
+
+    /**
+     * The breaker of the Hub at baseUrl, created with the given settings by the first connection to that Hub.
+     */
+    public static CircuitBreaker getShared(final URL baseUrl, final int failureThreshold, final long openMillis) {
+        return SHARED_CIRCUIT_BREAKERS.computeIfAbsent(baseUrl.toString(), key -> new CircuitBreaker(key, failureThreshold, openMillis));
+    }
+
+    /**
+     * Every permitted request must be followed by {@link #recordSuccess(RestConnectionMetricsListener)} or {@link #recordFailure(RestConnectionMetricsListener)}.
+     * @throws CircuitBreakerOpenException when the breaker is open, or half-open with its probe already in flight
+     */
+    public void acquirePermission(final RestConnectionMetricsListener metricsListener) throws CircuitBreakerOpenException {
+        State previousState = null;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedNanos < openNanos) {
+                    throw reject();
+                }
+                previousState = transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    throw reject();
+                }
+                probeInFlight = true;
+            }
+        }
+        reportTransition(metricsListener, previousState, State.HALF_OPEN);
+    }
+
+    public void recordSuccess(final RestConnectionMetricsListener metricsListener) {
+        State previousState = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                previousState = transitionTo(State.CLOSED);
+            }
+        }
+        reportTransition(metricsListener, previousState, State.CLOSED);
+    }
+
+    public void recordFailure(final RestConnectionMetricsListener metricsListener) {
+        State previousState = null;
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                probeInFlight = false;
+                openedNanos = System.nanoTime();
+                previousState = transitionTo(State.OPEN);
+            }
+        }
+        reportTransition(metricsListener, previousState, State.OPEN);
+    }
+
+    public boolean isFailure(final int statusCode) {
+        return FAILURE_STATUS_CODES.contains(statusCode);
+    }
+
+    private State transitionTo(final State newState) {
+        final State previousState = state;
+        state = newState;
+        transitionCounts.get(newState).increment();
+        return previousState;
+    }
+
+    private CircuitBreakerOpenException reject() {
+        rejectedCount.increment();
+        return new CircuitBreakerOpenException(String.format("Not sending the request, the circuit breaker of %s is %s after %d consecutive failures", name, state, consecutiveFailures));
+    }
+
+    private void reportTransition(final RestConnectionMetricsListener metricsListener, final State previousState, final State newState) {
+        if (previousState != null) {
+            metricsListener.circuitBreakerStateChanged(name, previousState, newState);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * The number of requests failed without being sent.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * The number of times the breaker changed to the given state.
+     */
+    public long getTransitionCount(final State toState) {
+        return transitionCounts.get(toState).sum();
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(openNanos);
+    }
+
+}
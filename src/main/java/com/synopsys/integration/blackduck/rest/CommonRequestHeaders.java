@@ -0,0 +1,154 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The common request headers of a connection as an immutable snapshot that every change replaces atomically.
+ * Requests are built from a single {@link #getSnapshot()} without locking or copying, so they never see half of a change such as a new Authorization header without its CSRF token.
+ * Changes through the map methods copy the current snapshot and publish the copy.
+ */
+class CommonRequestHeaders extends AbstractMap<String, String> {
+    private final AtomicReference<Map<String, String>> snapshot = new AtomicReference<>(Collections.emptyMap());
+
+    public Map<String, String> getSnapshot() {
+        return snapshot.get();
+    }
+
+    @Override
+    public String put(final String key, final String value) {
+        final Map<String, String> previousHeaders = update(headers -> headers.put(key, value));
+        return previousHeaders.get(key);
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ? extends String> headers) {
+        update(currentHeaders -> currentHeaders.putAll(headers));
+    }
+
+    @Override
+    public String remove(final Object key) {
+        final Map<String, String> previousHeaders = update(headers -> headers.remove(key));
+        return previousHeaders.get(key);
+    }
+
+    @Override
+    public void clear() {
+        snapshot.set(Collections.emptyMap());
+    }
+
+    @Override
+    public String get(final Object key) {
+        return snapshot.get().get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return snapshot.get().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.get().size();
+    }
+
+    /**
+     * Iterates over the snapshot of the moment, removing through the set or its iterator and setting entry values publish a new snapshot like the map methods do.
+     */
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                final Iterator<Entry<String, String>> snapshotIterator = snapshot.get().entrySet().iterator();
+                return new Iterator<Entry<String, String>>() {
+                    private Entry<String, String> current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return snapshotIterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        current = snapshotIterator.next();
+                        return new HeaderEntry(current.getKey(), current.getValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        CommonRequestHeaders.this.remove(current.getKey());
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return snapshot.get().size();
+            }
+        };
+    }
+
+    /**
+     * Returns the snapshot the change was applied to.
+     */
+    private Map<String, String> update(final Consumer<Map<String, String>> change) {
+        while (true) {
+            final Map<String, String> currentHeaders = snapshot.get();
+            final Map<String, String> changedHeaders = new LinkedHashMap<>(currentHeaders);
+            change.accept(changedHeaders);
+            if (snapshot.compareAndSet(currentHeaders, Collections.unmodifiableMap(changedHeaders))) {
+                return currentHeaders;
+            }
+        }
+    }
+
+    private class HeaderEntry extends SimpleEntry<String, String> {
+        private static final long serialVersionUID = 1L;
+
+        private HeaderEntry(final String key, final String value) {
+            super(key, value);
+        }
+
+        @Override
+        public String setValue(final String value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+}
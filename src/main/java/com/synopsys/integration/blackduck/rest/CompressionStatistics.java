@@ -0,0 +1,130 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+
+/**
+ * Counts the body bytes of a connection on the wire and before compression, to show what compression saves.
+ * Every response body is counted, uncompressed ones add the same number to both counters. Request bodies are only counted when they are compressed.
+ */
+public class CompressionStatistics {
+    private final LongAdder responseBytesReceived = new LongAdder();
+    private final LongAdder responseBytesDecompressed = new LongAdder();
+    private final LongAdder requestBytesSent = new LongAdder();
+    private final LongAdder requestBytesUncompressed = new LongAdder();
+
+    public InputStream countResponseBytesReceived(final InputStream inputStream) {
+        return new CountingInputStream(inputStream, responseBytesReceived);
+    }
+
+    public InputStream countResponseBytesDecompressed(final InputStream inputStream) {
+        return new CountingInputStream(inputStream, responseBytesDecompressed);
+    }
+
+    public OutputStream countRequestBytesSent(final OutputStream outputStream) {
+        return new CountingOutputStream(outputStream, requestBytesSent);
+    }
+
+    public OutputStream countRequestBytesUncompressed(final OutputStream outputStream) {
+        return new CountingOutputStream(outputStream, requestBytesUncompressed);
+    }
+
+    /**
+     * The response body bytes read from the wire, compressed or not.
+     */
+    public long getResponseBytesReceived() {
+        return responseBytesReceived.sum();
+    }
+
+    /**
+     * The response body bytes read after decompression.
+     */
+    public long getResponseBytesDecompressed() {
+        return responseBytesDecompressed.sum();
+    }
+
+    public long getResponseBytesSaved() {
+        return getResponseBytesDecompressed() - getResponseBytesReceived();
+    }
+
+    /**
+     * The compressed request body bytes written to the wire.
+     */
+    public long getRequestBytesSent() {
+        return requestBytesSent.sum();
+    }
+
+    /**
+     * The size of the compressed request bodies before compression.
+     */
+    public long getRequestBytesUncompressed() {
+        return requestBytesUncompressed.sum();
+    }
+
+    public long getRequestBytesSaved() {
+        return getRequestBytesUncompressed() - getRequestBytesSent();
+    }
+
+    private static class CountingInputStream extends ProxyInputStream {
+        private final LongAdder byteCount;
+
+        private CountingInputStream(final InputStream inputStream, final LongAdder byteCount) {
+            super(inputStream);
+            this.byteCount = byteCount;
+        }
+
+        @Override
+        protected void afterRead(final int n) {
+            if (n > 0) {
+                byteCount.add(n);
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends ProxyOutputStream {
+        private final LongAdder byteCount;
+
+        private CountingOutputStream(final OutputStream outputStream, final LongAdder byteCount) {
+            super(outputStream);
+            this.byteCount = byteCount;
+        }
+
+        @Override
+        protected void afterWrite(final int n) {
+            byteCount.add(n);
+        }
+
+        @Override
+        public void close() {
+            // the wrapped stream belongs to the caller
+        }
+    }
+
+}
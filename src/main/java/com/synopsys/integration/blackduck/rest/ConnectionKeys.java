@@ -0,0 +1,53 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+/**
+ * Builds the keys connections are shared and cached by. Every part is prefixed with its length, so a separator inside one part can't shift it into the next, and null is distinct from an empty part.
+ */
+final class ConnectionKeys {
+    private ConnectionKeys() {
+    }
+
+    static String join(final Object... parts) {
+        final StringBuilder key = new StringBuilder();
+        for (final Object part : parts) {
+            if (part == null) {
+                key.append('-');
+            } else {
+                final String value = part.toString();
+                key.append(value.length()).append(':').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * For settings that are compared by identity, such as caches and listeners.
+     */
+    static String identity(final Object object) {
+        return object == null ? null : object.getClass().getName() + '@' + Integer.toHexString(System.identityHashCode(object));
+    }
+
+}
@@ -39,7 +39,6 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
 
@@ -63,8 +62,9 @@ public class CredentialsRestConnection extends BlackduckRestConnection {
 
     @Override
     public void populateHttpClientBuilder(final HttpClientBuilder httpClientBuilder, final RequestConfig.Builder defaultRequestConfigBuilder) throws IntegrationException {
+        super.populateHttpClientBuilder(httpClientBuilder, defaultRequestConfigBuilder);
         if (StringUtils.isNotBlank(hubUsername) && StringUtils.isNotBlank(hubPassword)) {
-            httpClientBuilder.setDefaultCookieStore(new BasicCookieStore());
+            httpClientBuilder.setDefaultCookieStore(getCookieStore());
             defaultRequestConfigBuilder.setCookieSpec(CookieSpecs.DEFAULT);
         }
     }
@@ -93,7 +93,7 @@ public class CredentialsRestConnection extends BlackduckRestConnection {
             requestBuilder.setEntity(entity);
             final HttpUriRequest request = requestBuilder.build();
             logRequestHeaders(request);
-            try (final CloseableHttpResponse closeableHttpResponse = getClient().execute(request)) {
+            try (final CloseableHttpResponse closeableHttpResponse = sendAuthenticationRequest(request)) {
                 logResponseHeaders(closeableHttpResponse);
                 final Response response = new Response(closeableHttpResponse);
                 final int statusCode = closeableHttpResponse.getStatusLine().getStatusCode();
@@ -116,4 +116,9 @@ public class CredentialsRestConnection extends BlackduckRestConnection {
         }
     }
 
+    @Override
+    protected String getCredentialsKey() {
+        return ConnectionKeys.join(hubUsername, hubPassword);
+    }
+
 }
@@ -25,12 +25,11 @@ package com.synopsys.integration.blackduck.rest;
 
 import com.synopsys.integration.blackduck.validator.CredentialsRestConnectionValidator;
 import com.synopsys.integration.exception.EncryptionException;
-import com.synopsys.integration.rest.connection.AbstractRestConnectionBuilder;
 import com.synopsys.integration.rest.credentials.Credentials;
 import com.synopsys.integration.rest.proxy.ProxyInfo;
 import com.synopsys.integration.validator.AbstractValidator;
 
-public class CredentialsRestConnectionBuilder extends AbstractRestConnectionBuilder<CredentialsRestConnection> {
+public class CredentialsRestConnectionBuilder extends BlackduckRestConnectionBuilder<CredentialsRestConnection> {
     private String username;
     private String password;
 
@@ -83,4 +82,10 @@ public class CredentialsRestConnectionBuilder extends AbstractRestConnectionBuil
         final CredentialsRestConnection connection = new CredentialsRestConnection(getLogger(), getBaseConnectionUrl(), getUsername(), getPassword(), getTimeout(), proxyInfo);
         return connection;
     }
+
+    @Override
+    protected String getCredentialsKey() {
+        return ConnectionKeys.join(getUsername(), getPassword());
+    }
+
 }
@@ -0,0 +1,40 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+/**
+ * Notified while a download is written to disk, see {@link FileDownloader}.
+ */
+@FunctionalInterface
+public interface DownloadProgressListener {
+    DownloadProgressListener NOOP = (bytesWritten, totalBytes) -> {
+    };
+
+    /**
+     * @param bytesWritten the size of the file so far, including the bytes of a resumed download
+     * @param totalBytes   the size of the complete file, -1 when the Hub didn't send it
+     */
+    void progressed(long bytesWritten, long totalBytes);
+
+}
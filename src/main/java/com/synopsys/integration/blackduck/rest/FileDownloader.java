@@ -0,0 +1,197 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.log.IntLogger;
+import com.synopsys.integration.rest.RestConstants;
+import com.synopsys.integration.rest.exception.IntegrationRestException;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.request.Response;
+
+/**
+ * Streams response bodies straight into a file, so the heap used doesn't depend on the size of the download.
+ * When the transfer breaks off only the rest is requested with a Range header, up to the max attempts of the connection's retry policy. The ETag or Last-Modified of the first response is sent as If-Range, so the whole body is sent again when the artifact changed in between.
+ */
+public class FileDownloader {
+    public static final int RANGE_NOT_SATISFIABLE_416 = 416;
+    public static final int TRANSFER_CHUNK_BYTES = 1024 * 1024;
+
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
+    private final BlackduckRestConnection restConnection;
+    private final IntLogger logger;
+    private final DownloadProgressListener progressListener;
+
+    public FileDownloader(final BlackduckRestConnection restConnection, final DownloadProgressListener progressListener) {
+        this.restConnection = restConnection;
+        this.logger = restConnection.getLogger();
+        this.progressListener = progressListener == null ? DownloadProgressListener.NOOP : progressListener;
+    }
+
+    /**
+     * Downloads the response body of the request to the destination, replacing an existing file, and returns the size of the file. On failure the partial file is kept.
+     */
+    public long download(final Request request, final Path destination) throws IntegrationException {
+        final int maxAttempts = restConnection.getRetryPolicy().getMaxAttempts();
+        final ResumeState resumeState = new ResumeState();
+        int attempt = 1;
+        while (true) {
+            try {
+                return transfer(request, destination, resumeState);
+            } catch (final IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw new IntegrationException(String.format("Could not download %s to %s: %s", request.getUri(), destination, e.getMessage()), e);
+                }
+                logger.debug(String.format("Resuming the download of %s after attempt %d failed: %s", request.getUri(), attempt, e.getMessage()));
+                attempt++;
+            }
+        }
+    }
+
+    private long transfer(final Request request, final Path destination, final ResumeState resumeState) throws IntegrationException, IOException {
+        // a file this download did not write may belong to another version of the artifact, it is never resumed
+        final OpenOption firstAttemptOption = resumeState.started ? StandardOpenOption.WRITE : StandardOpenOption.TRUNCATE_EXISTING;
+        resumeState.started = true;
+        try (final FileChannel fileChannel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, firstAttemptOption)) {
+            long position = fileChannel.size();
+            Response response;
+            try {
+                response = requestFrom(request, position, resumeState.validator);
+            } catch (final IntegrationRestException e) {
+                if (position == 0 || e.getHttpStatusCode() != RANGE_NOT_SATISFIABLE_416) {
+                    throw e;
+                }
+                // the file is not the beginning of this download, it is complete or the artifact changed
+                logger.debug(String.format("The Hub rejected resuming %s at %d bytes, downloading all of it", request.getUri(), position));
+                position = 0;
+                response = requestFrom(request, position, resumeState.validator);
+            }
+
+            try (final CloseableHttpResponse httpResponse = response.getActualResponse()) {
+                position = getStartPosition(httpResponse, position);
+                fileChannel.truncate(position);
+                if (position == 0) {
+                    resumeState.validator = getValidator(httpResponse);
+                }
+
+                final HttpEntity entity = httpResponse.getEntity();
+                if (entity == null) {
+                    return position;
+                }
+                final long totalBytes = getTotalBytes(httpResponse, position);
+                try (final ReadableByteChannel source = Channels.newChannel(entity.getContent())) {
+                    long transferred;
+                    while ((transferred = fileChannel.transferFrom(source, position, TRANSFER_CHUNK_BYTES)) > 0) {
+                        position += transferred;
+                        progressListener.progressed(position, totalBytes);
+                    }
+                }
+                if (totalBytes >= 0 && position < totalBytes) {
+                    throw new IOException(String.format("The download ended after %d of %d bytes", position, totalBytes));
+                }
+                return position;
+            }
+        }
+    }
+
+    private Response requestFrom(final Request request, final long position, final String validator) throws IntegrationException {
+        final HttpUriRequest httpRequest = restConnection.createHttpRequest(request);
+        // a range addresses the bytes that are stored, so they must not be compressed on the way
+        httpRequest.setHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        if (position > 0) {
+            httpRequest.setHeader(HttpHeaders.RANGE, "bytes=" + position + "-");
+            if (validator != null) {
+                httpRequest.setHeader(HttpHeaders.IF_RANGE, validator);
+            }
+        }
+        return restConnection.executeUncoalescedRequest(httpRequest);
+    }
+
+    /**
+     * The ETag of the response, or its Last-Modified date when it has none. Weak ETags can't be used in If-Range.
+     */
+    private String getValidator(final CloseableHttpResponse httpResponse) {
+        final Header eTag = httpResponse.getFirstHeader(HttpHeaders.ETAG);
+        if (eTag != null && !eTag.getValue().startsWith("W/")) {
+            return eTag.getValue();
+        }
+        final Header lastModified = httpResponse.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+        return lastModified == null ? null : lastModified.getValue();
+    }
+
+    /**
+     * Where the body of the response starts in the file: 0 unless the Hub answered the range request with partial content.
+     */
+    private long getStartPosition(final CloseableHttpResponse httpResponse, final long requestedPosition) throws IOException {
+        if (httpResponse.getStatusLine().getStatusCode() != RestConstants.PARTIAL_206) {
+            return 0;
+        }
+        final Matcher contentRange = matchContentRange(httpResponse);
+        if (contentRange != null && Long.parseLong(contentRange.group(1)) != requestedPosition) {
+            throw new IOException(String.format("Requested the bytes from %d but received %s", requestedPosition, httpResponse.getFirstHeader(HttpHeaders.CONTENT_RANGE).getValue()));
+        }
+        return requestedPosition;
+    }
+
+    private long getTotalBytes(final CloseableHttpResponse httpResponse, final long position) {
+        final Matcher contentRange = matchContentRange(httpResponse);
+        if (contentRange != null && !"*".equals(contentRange.group(2))) {
+            return Long.parseLong(contentRange.group(2));
+        }
+        final long contentLength = httpResponse.getEntity().getContentLength();
+        return contentLength < 0 ? -1 : position + contentLength;
+    }
+
+    private Matcher matchContentRange(final CloseableHttpResponse httpResponse) {
+        final Header contentRange = httpResponse.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        if (contentRange == null) {
+            return null;
+        }
+        final Matcher matcher = CONTENT_RANGE_PATTERN.matcher(contentRange.getValue().trim());
+        return matcher.matches() ? matcher : null;
+    }
+
+    private static class ResumeState {
+        private boolean started;
+        private String validator;
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import com.synopsys.integration.rest.body.BodyContent;
+import com.synopsys.integration.rest.request.Request;
+
+/**
+ * A request body sent straight from a file, or from a region of it. The file is read while the body is sent, so it can be replayed and the heap used doesn't depend on its size.
+ */
+public class FileRegionBodyContent implements BodyContent {
+    private final Path file;
+    private final long position;
+    private final long length;
+
+    public FileRegionBodyContent(final Path file) throws IOException {
+        this(file, 0, Files.size(file));
+    }
+
+    public FileRegionBodyContent(final Path file, final long position, final long length) {
+        this.file = file;
+        this.position = position;
+        this.length = length;
+    }
+
+    @Override
+    public HttpEntity createEntity(final Request request) {
+        final FileRegionEntity entity = new FileRegionEntity(file, position, length);
+        entity.setContentType(ContentType.create(request.getMimeType(), request.getBodyEncoding()).toString());
+        return entity;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    private static class FileRegionEntity extends AbstractHttpEntity {
+        private final Path file;
+        private final long position;
+        private final long length;
+
+        private FileRegionEntity(final Path file, final long position, final long length) {
+            this.file = file;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+            fileChannel.position(position);
+            return new BoundedInputStream(Channels.newInputStream(fileChannel), length);
+        }
+
+        @Override
+        public void writeTo(final OutputStream outputStream) throws IOException {
+            try (final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final WritableByteChannel target = Channels.newChannel(outputStream);
+                long transferred = 0;
+                while (transferred < length) {
+                    final long count = fileChannel.transferTo(position + transferred, length - transferred, target);
+                    if (count <= 0) {
+                        throw new IOException(String.format("%s ended after %d of %d bytes", file, transferred, length));
+                    }
+                    transferred += count;
+                }
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+}
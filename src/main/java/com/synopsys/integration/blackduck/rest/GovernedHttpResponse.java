@@ -0,0 +1,111 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHttpResponse;
+
+/**
+ * Keeps a request in flight with the {@link RequestGovernor} until its body was read or the response was closed, so streamed bodies and downloads count against the budget while they are transferred.
+ */
+class GovernedHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+    private final CloseableHttpResponse response;
+    private final Runnable release;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    GovernedHttpResponse(final CloseableHttpResponse response, final Runnable release) {
+        super(response.getStatusLine());
+        this.response = response;
+        this.release = release;
+        setHeaders(response.getAllHeaders());
+        if (response.getEntity() == null) {
+            releaseOnce();
+        } else {
+            setEntity(new GovernedEntity(response.getEntity()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            response.close();
+        } finally {
+            releaseOnce();
+        }
+    }
+
+    private void releaseOnce() {
+        if (released.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+
+    private class GovernedEntity extends HttpEntityWrapper implements EofSensorWatcher {
+        private GovernedEntity(final HttpEntity wrappedEntity) {
+            super(wrappedEntity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new EofSensorInputStream(super.getContent(), this);
+        }
+
+        @Override
+        public void writeTo(final OutputStream outputStream) throws IOException {
+            try {
+                super.writeTo(outputStream);
+            } finally {
+                releaseOnce();
+            }
+        }
+
+        @Override
+        public boolean eofDetected(final InputStream wrapped) {
+            releaseOnce();
+            return true;
+        }
+
+        @Override
+        public boolean streamClosed(final InputStream wrapped) {
+            releaseOnce();
+            return true;
+        }
+
+        @Override
+        public boolean streamAbort(final InputStream wrapped) {
+            releaseOnce();
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * Gzips a request body while it is written, without buffering it.
+ */
+public class GzipRequestEntity extends HttpEntityWrapper {
+    public static final String GZIP_CONTENT_CODING = "gzip";
+
+    private final CompressionStatistics compressionStatistics;
+
+    public GzipRequestEntity(final HttpEntity wrappedEntity, final CompressionStatistics compressionStatistics) {
+        super(wrappedEntity);
+        this.compressionStatistics = compressionStatistics;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return new BasicHeader(HttpHeaders.CONTENT_ENCODING, GZIP_CONTENT_CODING);
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() {
+        throw new UnsupportedOperationException("The compressed body can only be written");
+    }
+
+    @Override
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressionStatistics.countRequestBytesSent(outputStream));
+        wrappedEntity.writeTo(compressionStatistics.countRequestBytesUncompressed(gzipOutputStream));
+        gzipOutputStream.finish();
+    }
+
+}
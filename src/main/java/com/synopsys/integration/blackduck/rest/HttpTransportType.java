@@ -0,0 +1,40 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+public enum HttpTransportType {
+    /**
+     * The Apache HttpClient of the connection, one request per connection at a time.
+     */
+    HTTP_1_1,
+    /**
+     * An {@link OkHttpTransport} multiplexing concurrent requests over one connection. Https negotiates HTTP/2 and falls back to HTTP/1.1, plain http uses HTTP/1.1.
+     */
+    HTTP_2,
+    /**
+     * Like {@link #HTTP_2}, but plain http sends HTTP/2 without negotiating it (prior knowledge), which requires a server accepting it.
+     */
+    HTTP_2_PRIOR_KNOWLEDGE
+
+}
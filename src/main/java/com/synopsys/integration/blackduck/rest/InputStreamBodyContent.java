@@ -0,0 +1,69 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.InputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+
+import com.synopsys.integration.rest.body.BodyContent;
+import com.synopsys.integration.rest.request.Request;
+
+/**
+ * A request body read from a stream while it is sent. Without a length the body is sent with chunked transfer encoding.
+ * The stream can only be sent once, so a request with this body is not replayed after a rejected authentication or a retryable status code.
+ */
+public class InputStreamBodyContent implements BodyContent {
+    public static final long UNKNOWN_LENGTH = -1;
+
+    private final InputStream inputStream;
+    private final long length;
+
+    public InputStreamBodyContent(final InputStream inputStream) {
+        this(inputStream, UNKNOWN_LENGTH);
+    }
+
+    public InputStreamBodyContent(final InputStream inputStream, final long length) {
+        this.inputStream = inputStream;
+        this.length = length;
+    }
+
+    @Override
+    public HttpEntity createEntity(final Request request) {
+        final InputStreamEntity entity = new InputStreamEntity(inputStream, length, ContentType.create(request.getMimeType(), request.getBodyEncoding()));
+        entity.setChunked(length < 0);
+        return entity;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+}
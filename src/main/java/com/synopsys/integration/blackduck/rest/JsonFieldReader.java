@@ -0,0 +1,78 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Reads single values out of small json responses, like the authentication response, without buffering the body into a String or building a JsonObject tree.
+ */
+public final class JsonFieldReader {
+    private JsonFieldReader() {
+    }
+
+    /**
+     * Reads the primitive values of the given top level fields of a json object, stopping as soon as all of them were found. Fields that are missing, null, objects or arrays are left out of the result.
+     */
+    public static Map<String, String> readFields(final InputStream inputStream, final String... fieldNames) throws IOException {
+        final Map<String, String> values = new HashMap<>(fieldNames.length * 2);
+        try (final JsonReader jsonReader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            // lenient like JsonParser, which read these responses before
+            jsonReader.setLenient(true);
+            jsonReader.beginObject();
+            while (values.size() < fieldNames.length && jsonReader.hasNext()) {
+                final String name = jsonReader.nextName();
+                final JsonToken token = jsonReader.peek();
+                if (!isRequested(fieldNames, name)) {
+                    jsonReader.skipValue();
+                } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    values.put(name, jsonReader.nextString());
+                } else if (token == JsonToken.BOOLEAN) {
+                    values.put(name, String.valueOf(jsonReader.nextBoolean()));
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+        }
+        return values;
+    }
+
+    private static boolean isRequested(final String[] fieldNames, final String name) {
+        for (final String fieldName : fieldNames) {
+            if (fieldName.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
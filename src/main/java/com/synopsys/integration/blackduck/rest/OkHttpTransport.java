@@ -0,0 +1,362 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.cookie.CookieOrigin;
+import org.apache.http.cookie.CookieSpec;
+import org.apache.http.cookie.MalformedCookieException;
+import org.apache.http.cookie.SM;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.cookie.DefaultCookieSpec;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+
+import com.synopsys.integration.exception.IntegrationException;
+
+import okhttp3.ConnectionPool;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Sends requests with OkHttp, which multiplexes concurrent requests to the Hub over a single HTTP/2 connection. The connection's timeouts, proxy, certificate trust and cookie store are applied.
+ * NTLM proxy authentication is not supported, only basic.
+ */
+public class OkHttpTransport implements HttpTransport {
+    public static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+    private static final List<String> HOP_BY_HOP_HEADERS = Arrays.asList(HttpHeaders.CONNECTION, HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, "Keep-Alive", HttpHeaders.UPGRADE);
+    private static final List<String> METHODS_REQUIRING_BODY = Arrays.asList("POST", "PUT", "PATCH");
+
+    private final OkHttpClient client;
+    private final CookieStore cookieStore;
+    private final CookieSpec cookieSpec = new DefaultCookieSpec();
+    private final CompressionStatistics compressionStatistics;
+
+    public OkHttpTransport(final BlackduckRestConnection connection) throws IntegrationException {
+        this.cookieStore = connection.getCookieStore();
+        this.compressionStatistics = connection.getCompressionStatistics();
+
+        final RequestConfig requestConfig = connection.getDefaultRequestConfigBuilder().build();
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                                                 .connectTimeout(requestConfig.getConnectTimeout(), TimeUnit.MILLISECONDS)
+                                                 .readTimeout(requestConfig.getSocketTimeout(), TimeUnit.MILLISECONDS)
+                                                 .writeTimeout(requestConfig.getSocketTimeout(), TimeUnit.MILLISECONDS)
+                                                 .connectionPool(new ConnectionPool(connection.getMaxConnectionsPerRoute(), connection.getKeepAliveSeconds(), TimeUnit.SECONDS))
+                                                 // cookies are kept in the connection's cookie store, shared with its Apache clients
+                                                 .cookieJar(CookieJar.NO_COOKIES)
+                                                 // OkHttp asks for gzip and decompresses after the network interceptors, so they see the bytes on the wire
+                                                 .addNetworkInterceptor(this::countResponseBytesReceived);
+
+        if ("https".equalsIgnoreCase(connection.getBaseUrl().getProtocol())) {
+            builder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+            // the SSL context of the connection, so TLS sessions are resumed across its clients
+            builder.sslSocketFactory(connection.getSslContext().getSocketFactory(), getTrustManager(connection));
+            if (connection.isAlwaysTrustServerCertificate()) {
+                builder.hostnameVerifier((hostname, session) -> true);
+            }
+        } else if (connection.getHttpTransportType() == HttpTransportType.HTTP_2_PRIOR_KNOWLEDGE) {
+            builder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        } else {
+            // plain http has no negotiation, a server that does not accept HTTP/2 without it would reject every request
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+
+        final HttpHost proxyHost = requestConfig.getProxy();
+        if (proxyHost != null) {
+            builder.proxy(new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved(proxyHost.getHostName(), proxyHost.getPort())));
+            final Credentials proxyCredentials = connection.getCredentialsProvider().getCredentials(new AuthScope(proxyHost));
+            if (proxyCredentials != null) {
+                final String proxyAuthorization = okhttp3.Credentials.basic(proxyCredentials.getUserPrincipal().getName(), proxyCredentials.getPassword());
+                builder.proxyAuthenticator((route, response) -> {
+                    if (response.request().header(HttpHeaders.PROXY_AUTHORIZATION) != null) {
+                        return null;
+                    }
+                    return response.request().newBuilder().header(HttpHeaders.PROXY_AUTHORIZATION, proxyAuthorization).build();
+                });
+            }
+        }
+        client = builder.build();
+    }
+
+    @Override
+    public CloseableHttpResponse execute(final HttpUriRequest request) throws IOException {
+        final URI uri = request.getURI();
+        final CookieOrigin cookieOrigin = createCookieOrigin(uri);
+        final Request.Builder requestBuilder = new Request.Builder().url(HttpUrl.get(uri));
+        for (final Header header : request.getAllHeaders()) {
+            if (!isHopByHopHeader(header.getName())) {
+                requestBuilder.addHeader(header.getName(), header.getValue());
+            }
+        }
+        for (final Header cookieHeader : getCookieHeaders(cookieOrigin)) {
+            requestBuilder.addHeader(cookieHeader.getName(), cookieHeader.getValue());
+        }
+        requestBuilder.method(request.getMethod(), createRequestBody(request));
+
+        final Response response = getClient(request).newCall(requestBuilder.build()).execute();
+        storeCookies(response, cookieOrigin);
+        return createHttpResponse(response);
+    }
+
+    /**
+     * A client with the timeouts of the request config, when the request has its own, that does not retry requests with a body that can only be sent once. It shares the connection pool of the transport.
+     */
+    private OkHttpClient getClient(final HttpUriRequest request) {
+        final boolean hasRequestConfig = request instanceof Configurable && ((Configurable) request).getConfig() != null;
+        final boolean hasNonRepeatableEntity = request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null && !((HttpEntityEnclosingRequest) request).getEntity().isRepeatable();
+        if (!hasRequestConfig && !hasNonRepeatableEntity) {
+            return client;
+        }
+        final OkHttpClient.Builder builder = client.newBuilder();
+        if (hasRequestConfig) {
+            final RequestConfig requestConfig = ((Configurable) request).getConfig();
+            builder.connectTimeout(Math.max(requestConfig.getConnectTimeout(), 0), TimeUnit.MILLISECONDS)
+                .readTimeout(Math.max(requestConfig.getSocketTimeout(), 0), TimeUnit.MILLISECONDS)
+                .writeTimeout(Math.max(requestConfig.getSocketTimeout(), 0), TimeUnit.MILLISECONDS);
+        }
+        if (hasNonRepeatableEntity) {
+            // OkHttp resends the body after a failed connection attempt, a stream can only be sent once
+            builder.retryOnConnectionFailure(false);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The number of open connections, idle or in use.
+     */
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private Response countResponseBytesReceived(final Interceptor.Chain chain) throws IOException {
+        final Response response = chain.proceed(chain.request());
+        final ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        final BufferedSource countedSource = Okio.buffer(Okio.source(compressionStatistics.countResponseBytesReceived(body.byteStream())));
+        return response.newBuilder().body(ResponseBody.create(body.contentType(), body.contentLength(), countedSource)).build();
+    }
+
+    private RequestBody createRequestBody(final HttpUriRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+            return new EntityRequestBody(((HttpEntityEnclosingRequest) request).getEntity());
+        }
+        if (METHODS_REQUIRING_BODY.contains(request.getMethod())) {
+            return RequestBody.create(null, new byte[0]);
+        }
+        return null;
+    }
+
+    private CloseableHttpResponse createHttpResponse(final Response response) {
+        final ProtocolVersion protocolVersion;
+        if (response.protocol() == Protocol.HTTP_2 || response.protocol() == Protocol.H2_PRIOR_KNOWLEDGE) {
+            protocolVersion = HTTP_2;
+        } else if (response.protocol() == Protocol.HTTP_1_0) {
+            protocolVersion = HttpVersion.HTTP_1_0;
+        } else {
+            protocolVersion = HttpVersion.HTTP_1_1;
+        }
+
+        final OkHttpCloseableResponse httpResponse = new OkHttpCloseableResponse(protocolVersion, response);
+        for (int i = 0; i < response.headers().size(); i++) {
+            httpResponse.addHeader(response.headers().name(i), response.headers().value(i));
+        }
+        final ResponseBody body = response.body();
+        if (body != null) {
+            final InputStreamEntity entity = new InputStreamEntity(compressionStatistics.countResponseBytesDecompressed(body.byteStream()), body.contentLength());
+            entity.setContentType(response.header(HttpHeaders.CONTENT_TYPE));
+            httpResponse.setEntity(entity);
+        }
+        return httpResponse;
+    }
+
+    private List<Header> getCookieHeaders(final CookieOrigin cookieOrigin) {
+        final Date now = new Date();
+        final List<Cookie> matchingCookies = new ArrayList<>();
+        for (final Cookie cookie : cookieStore.getCookies()) {
+            if (!cookie.isExpired(now) && cookieSpec.match(cookie, cookieOrigin)) {
+                matchingCookies.add(cookie);
+            }
+        }
+        return matchingCookies.isEmpty() ? Collections.emptyList() : cookieSpec.formatCookies(matchingCookies);
+    }
+
+    private void storeCookies(final Response response, final CookieOrigin cookieOrigin) {
+        for (final String setCookie : response.headers(SM.SET_COOKIE)) {
+            try {
+                for (final Cookie cookie : cookieSpec.parse(new BasicHeader(SM.SET_COOKIE, setCookie), cookieOrigin)) {
+                    cookieSpec.validate(cookie, cookieOrigin);
+                    cookieStore.addCookie(cookie);
+                }
+            } catch (final MalformedCookieException ignored) {
+                // rejected like the Apache client rejects it
+            }
+        }
+    }
+
+    private CookieOrigin createCookieOrigin(final URI uri) {
+        final boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        final int port = uri.getPort() >= 0 ? uri.getPort() : (secure ? 443 : 80);
+        return new CookieOrigin(uri.getHost(), port, StringUtils.defaultIfEmpty(uri.getPath(), "/"), secure);
+    }
+
+    private boolean isHopByHopHeader(final String name) {
+        for (final String hopByHopHeader : HOP_BY_HOP_HEADERS) {
+            if (hopByHopHeader.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The trust manager of the connection's SSL context, OkHttp uses it to clean up certificate chains.
+     */
+    private X509TrustManager getTrustManager(final BlackduckRestConnection connection) throws IntegrationException {
+        if (connection.isAlwaysTrustServerCertificate()) {
+            return new TrustAllManager();
+        }
+        try {
+            final TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            for (final TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+                if (trustManager instanceof X509TrustManager) {
+                    return (X509TrustManager) trustManager;
+                }
+            }
+            throw new IntegrationException("The default trust managers include no X509TrustManager");
+        } catch (final KeyStoreException | NoSuchAlgorithmException e) {
+            throw new IntegrationException(e.getMessage(), e);
+        }
+    }
+
+    private static class EntityRequestBody extends RequestBody {
+        private final HttpEntity entity;
+
+        private EntityRequestBody(final HttpEntity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return entity.getContentType() == null ? null : MediaType.parse(entity.getContentType().getValue());
+        }
+
+        @Override
+        public long contentLength() {
+            return entity.getContentLength();
+        }
+
+        @Override
+        public void writeTo(final BufferedSink sink) throws IOException {
+            entity.writeTo(sink.outputStream());
+        }
+    }
+
+    /**
+     * Closing releases the OkHttp response instead of reading the rest of the body, so an unread HTTP/2 stream is cancelled.
+     */
+    private static class OkHttpCloseableResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        private final Response response;
+
+        private OkHttpCloseableResponse(final ProtocolVersion protocolVersion, final Response response) {
+            super(protocolVersion, response.code(), response.message());
+            this.response = response;
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+
+    private static class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+}
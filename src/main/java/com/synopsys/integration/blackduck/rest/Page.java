@@ -0,0 +1,48 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.util.List;
+
+/**
+ * One page of a Hub list endpoint: the items at the requested offset and the size of the whole collection.
+ */
+public class Page<T> {
+    private final int totalCount;
+    private final List<T> items;
+
+    public Page(final int totalCount, final List<T> items) {
+        this.totalCount = totalCount;
+        this.items = items;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+}
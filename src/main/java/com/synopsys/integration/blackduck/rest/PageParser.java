@@ -0,0 +1,73 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Reads a Hub list response straight from the response stream. Only the items are bound to objects, the rest of the document (links, filters, meta data) is skipped without being materialized.
+ */
+public class PageParser<T> {
+    private final Gson gson;
+    private final Type itemType;
+
+    public PageParser(final Gson gson, final Type itemType) {
+        this.gson = gson;
+        this.itemType = itemType;
+    }
+
+    public Page<T> parse(final InputStream content) throws IOException {
+        try (final JsonReader jsonReader = new JsonReader(new InputStreamReader(content, StandardCharsets.UTF_8))) {
+            int totalCount = 0;
+            final List<T> items = new ArrayList<>();
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                final String name = jsonReader.nextName();
+                if ("totalCount".equals(name)) {
+                    totalCount = jsonReader.nextInt();
+                } else if ("items".equals(name)) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        items.add(gson.fromJson(jsonReader, itemType));
+                    }
+                    jsonReader.endArray();
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            return new Page<>(totalCount, items);
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.request.Response;
+
+/**
+ * Lazily iterates over every item of a Hub list endpoint, requesting it page by page with the offset and limit query parameters. While the current page is consumed the following pages are already being fetched.
+ * Once the first page reports the totalCount up to parallelism pages are requested concurrently; they are still returned in order, and no more pages are requested until the oldest one is consumed, so at most parallelism + 1 pages are held in memory.
+ * Failures are thrown as {@link UncheckedIntegrationException}.
+ */
+public class PagedItemIterator<T> implements Iterator<T>, Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    private static final ExecutorService PAGE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "blackduck-page-fetcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BlackduckRestConnection restConnection;
+    private final Request request;
+    private final PageParser<T> pageParser;
+    private final int pageSize;
+    private final int parallelism;
+    private final Deque<CompletableFuture<Page<T>>> pendingPages = new ArrayDeque<>();
+
+    private Iterator<T> currentItems = Collections.emptyIterator();
+    private int nextPageOffset;
+
+    public PagedItemIterator(final BlackduckRestConnection restConnection, final Request request, final PageParser<T> pageParser, final int pageSize) {
+        this(restConnection, request, pageParser, pageSize, DEFAULT_PARALLELISM);
+    }
+
+    public PagedItemIterator(final BlackduckRestConnection restConnection, final Request request, final PageParser<T> pageParser, final int pageSize, final int parallelism) {
+        if (pageSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("The page size and parallelism must be at least 1.");
+        }
+        this.restConnection = restConnection;
+        this.request = request;
+        this.pageParser = pageParser;
+        this.pageSize = pageSize;
+        this.parallelism = parallelism;
+        pendingPages.add(fetchPage(0));
+        nextPageOffset = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentItems.hasNext()) {
+            final CompletableFuture<Page<T>> pendingPage = pendingPages.poll();
+            if (pendingPage == null) {
+                return false;
+            }
+            final Page<T> page = joinPage(pendingPage);
+            if (page.getItems().isEmpty()) {
+                // the collection shrank while it was being read
+                close();
+                return false;
+            }
+            requestPages(page.getTotalCount());
+            currentItems = page.getItems().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentItems.next();
+    }
+
+    /**
+     * A sequential stream over the remaining items, closing the stream closes this iterator.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Stops fetching further pages.
+     */
+    @Override
+    public void close() {
+        for (final CompletableFuture<Page<T>> pendingPage : pendingPages) {
+            pendingPage.cancel(false);
+        }
+        pendingPages.clear();
+        currentItems = Collections.emptyIterator();
+    }
+
+    private void requestPages(final int totalCount) {
+        while (pendingPages.size() < parallelism && nextPageOffset < totalCount) {
+            pendingPages.add(fetchPage(nextPageOffset));
+            nextPageOffset += pageSize;
+        }
+    }
+
+    private CompletableFuture<Page<T>> fetchPage(final int offset) {
+        final Request pageRequest = createPageRequest(offset);
+        return CompletableFuture.supplyAsync(() -> {
+            try (final Response response = restConnection.executeRequest(pageRequest)) {
+                return pageParser.parse(response.getContent());
+            } catch (final IntegrationException e) {
+                throw new UncheckedIntegrationException(e);
+            } catch (final IOException e) {
+                throw new UncheckedIntegrationException(new IntegrationException("Could not read the page at offset " + offset + ": " + e.getMessage(), e));
+            }
+        }, PAGE_EXECUTOR);
+    }
+
+    private Request createPageRequest(final int offset) {
+        final Map<String, Set<String>> queryParameters = new HashMap<>(request.getPopulatedQueryParameters());
+        queryParameters.put("offset", Collections.singleton(String.valueOf(offset)));
+        queryParameters.put("limit", Collections.singleton(String.valueOf(pageSize)));
+        return new Request.Builder(request).queryParameters(queryParameters).build();
+    }
+
+    private Page<T> joinPage(final CompletableFuture<Page<T>> page) {
+        try {
+            return page.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof UncheckedIntegrationException) {
+                throw (UncheckedIntegrationException) e.getCause();
+            }
+            throw new UncheckedIntegrationException(new IntegrationException(e.getCause().getMessage(), e.getCause()));
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.InputStreamEntity;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.HttpMethod;
+import com.synopsys.integration.rest.request.Response;
+
+/**
+ * Lets concurrent GET requests for the same uri and headers share one call to the Hub. The first request is sent, the others wait for it and every caller gets its own copy of the buffered response, or the same exception.
+ * Only bodies of at most maxBufferBytes are buffered, a larger body is streamed to the first request and the others send their own. Requests that arrive after the call completed send a new one, nothing is cached.
+ */
+public class RequestCoalescer {
+    public static final long DEFAULT_MAX_BUFFER_BYTES = ResponseCache.DEFAULT_MAX_ENTRY_BYTES;
+
+    private final long maxBufferBytes;
+    // a call completes with null when its response was too large to share
+    private final ConcurrentHashMap<String, CompletableFuture<CachedResponse>> inFlightCalls = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    public RequestCoalescer() {
+        this(DEFAULT_MAX_BUFFER_BYTES);
+    }
+
+    public RequestCoalescer(final long maxBufferBytes) {
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    /**
+     * Only GET requests are coalesced, range requests are left alone because their bodies are not buffered.
+     */
+    public boolean isCoalescable(final HttpUriRequest request) {
+        return HttpMethod.GET.name().equals(request.getMethod()) && !request.containsHeader(HttpHeaders.RANGE);
+    }
+
+    public static String createKey(final HttpUriRequest request) {
+        final StringBuilder key = new StringBuilder(request.getMethod()).append(' ').append(request.getURI());
+        final Header[] headers = request.getAllHeaders();
+        Arrays.sort(headers, Comparator.comparing((Header header) -> header.getName().toLowerCase()).thenComparing(Header::getValue));
+        for (final Header header : headers) {
+            key.append('\n').append(header.getName().toLowerCase()).append(':').append(header.getValue());
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param deadlineMillis how long to wait for an identical request in flight, 0 for no limit. A request that is sent passes it to the requestSender itself.
+     */
+    Response execute(final HttpUriRequest request, final long deadlineMillis, final RequestSender requestSender, final RestConnectionMetricsListener metricsListener) throws IntegrationException {
+        final String key = createKey(request);
+        final CompletableFuture<CachedResponse> call = new CompletableFuture<>();
+        final CompletableFuture<CachedResponse> inFlightCall = inFlightCalls.putIfAbsent(key, call);
+        if (inFlightCall != null) {
+            final CachedResponse sharedResponse;
+            waitingCount.incrementAndGet();
+            try {
+                sharedResponse = await(request, inFlightCall, deadlineMillis);
+            } finally {
+                waitingCount.decrementAndGet();
+            }
+            if (sharedResponse == null) {
+                return requestSender.send(request);
+            }
+            coalescedCount.increment();
+            metricsListener.requestCoalesced(request.getMethod(), request.getURI());
+            return new Response(sharedResponse.createHttpResponse());
+        }
+
+        try {
+            final Response response = requestSender.send(request);
+            final CloseableHttpResponse httpResponse = response.getActualResponse();
+            final CachedResponse bufferedResponse;
+            try {
+                bufferedResponse = buffer(httpResponse);
+            } catch (final IOException e) {
+                httpResponse.close();
+                throw e;
+            }
+            if (bufferedResponse == null) {
+                call.complete(null);
+                return response;
+            }
+            httpResponse.close();
+            call.complete(bufferedResponse);
+            return new Response(bufferedResponse.createHttpResponse());
+        } catch (final IOException e) {
+            final IntegrationException exception = new IntegrationException(e.getMessage(), e);
+            call.completeExceptionally(exception);
+            throw exception;
+        } catch (final IntegrationException | RuntimeException | Error e) {
+            // the waiters must never be left blocked, whatever the request threw
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, call);
+        }
+    }
+
+    /**
+     * Null when the body is larger than maxBufferBytes, the response then hands out the bytes already read followed by the rest of the stream.
+     */
+    private CachedResponse buffer(final CloseableHttpResponse httpResponse) throws IOException {
+        final HttpEntity entity = httpResponse.getEntity();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        if (entity != null) {
+            if (entity.getContentLength() > maxBufferBytes) {
+                return null;
+            }
+            final InputStream content = entity.getContent();
+            if (content != null) {
+                IOUtils.copyLarge(content, buffer, 0, maxBufferBytes + 1);
+                if (buffer.size() > maxBufferBytes) {
+                    final InputStreamEntity remainingEntity = new InputStreamEntity(new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), content), -1);
+                    remainingEntity.setContentType(entity.getContentType());
+                    httpResponse.setEntity(remainingEntity);
+                    return null;
+                }
+            }
+        }
+        return new CachedResponse(httpResponse.getStatusLine().getStatusCode(), httpResponse.getStatusLine().getReasonPhrase(), httpResponse.getAllHeaders(), buffer.toByteArray());
+    }
+
+    private CachedResponse await(final HttpUriRequest request, final CompletableFuture<CachedResponse> call, final long deadlineMillis) throws IntegrationException {
+        try {
+            return deadlineMillis > 0 ? call.get(deadlineMillis, TimeUnit.MILLISECONDS) : call.get();
+        } catch (final TimeoutException e) {
+            throw new IntegrationException(String.format("The deadline to %s %s passed while waiting for an identical request", request.getMethod(), request.getURI()), e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while waiting for an identical request", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IntegrationException) {
+                throw (IntegrationException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IntegrationException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * The number of requests currently being sent that others can join.
+     */
+    public int getInFlightCount() {
+        return inFlightCalls.size();
+    }
+
+    /**
+     * The number of requests currently waiting for an identical request in flight.
+     */
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    public long getMaxBufferBytes() {
+        return maxBufferBytes;
+    }
+
+    /**
+     * The number of requests that were answered by another request's call.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    @FunctionalInterface
+    interface RequestSender {
+        Response send(HttpUriRequest request) throws IntegrationException;
+    }
+
+}
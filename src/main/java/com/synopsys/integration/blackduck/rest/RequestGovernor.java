@@ -0,0 +1,387 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.log.IntLogger;
+
+/**
+ * Limits the requests sent to one Hub with a token bucket (requests per second) and a maximum number of requests in flight. Connections share the governor of their Hub through {@link #getShared(URL, double, int, IntLogger)}.
+ * The rate halves when the Hub answers 429 Too Many Requests and drops when a response takes much longer than the recent average, then recovers gradually while the Hub keeps up.
+ */
+public class RequestGovernor {
+    public static final int TOO_MANY_REQUESTS_429 = 429;
+
+    private static final ConcurrentMap<String, RequestGovernor> SHARED_GOVERNORS = new ConcurrentHashMap<>();
+
+    // only starts admitted requests and fails expired ones, it never blocks
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "blackduck-request-governor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final double MIN_RATE_FRACTION = 0.1;
+    private static final double THROTTLED_RATE_FACTOR = 0.5;
+    private static final double SLOW_RATE_FACTOR = 0.8;
+    private static final double RECOVERY_RATE_FRACTION = 0.02;
+    private static final double LATENCY_SPIKE_FACTOR = 3;
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    private final double maxRequestsPerSecond;
+    private final int maxRequestsInFlight;
+    private final Semaphore inFlightPermits;
+    // guarded by itself, requests of acquireAsync waiting for a permit in flight
+    private final Queue<PendingAcquire> pendingAcquires = new ArrayDeque<>();
+
+    private double requestsPerSecond;
+    private double storedPermits;
+    private long nextFreeNanos = System.nanoTime();
+    private double averageLatencyNanos;
+    private long latencySamples;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder throttledCount = new LongAdder();
+
+    /**
+     * @param maxRequestsPerSecond 0 for no rate limit
+     * @param maxRequestsInFlight 0 for no limit on concurrent requests
+     */
+    public RequestGovernor(final double maxRequestsPerSecond, final int maxRequestsInFlight) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxRequestsInFlight = maxRequestsInFlight;
+        this.inFlightPermits = maxRequestsInFlight > 0 ? new Semaphore(maxRequestsInFlight, true) : null;
+        requestsPerSecond = maxRequestsPerSecond;
+        // allow a burst of one second worth of requests
+        storedPermits = getBurstSize();
+    }
+
+    /**
+     * The governor of the Hub at baseUrl, created with the given budget by the first connection to that Hub. A different budget asked for later is logged and ignored.
+     */
+    public static RequestGovernor getShared(final URL baseUrl, final double maxRequestsPerSecond, final int maxRequestsInFlight, final IntLogger logger) {
+        final RequestGovernor requestGovernor = SHARED_GOVERNORS.computeIfAbsent(baseUrl.toString(), key -> new RequestGovernor(maxRequestsPerSecond, maxRequestsInFlight));
+        if (requestGovernor.getMaxRequestsPerSecond() != maxRequestsPerSecond || requestGovernor.getMaxRequestsInFlight() != maxRequestsInFlight) {
+            logger.warn(String.format("The requests to %s are already limited to %s per second and %d in flight, ignoring the limits of %s per second and %d in flight", baseUrl, requestGovernor.getMaxRequestsPerSecond(),
+                    requestGovernor.getMaxRequestsInFlight(), maxRequestsPerSecond, maxRequestsInFlight));
+        }
+        return requestGovernor;
+    }
+
+    /**
+     * Blocks until the request may be sent. Every acquire must be followed by a {@link #release(int, long)}.
+     * @return the nanoseconds spent waiting
+     */
+    public long acquire() throws IntegrationException {
+        return acquire(0);
+    }
+
+    /**
+     * Like {@link #acquire()}, but gives up when the request can't be sent within timeoutMillis, 0 for no limit. Only a successful acquire must be followed by a {@link #release(int, long)}.
+     * @throws IntegrationException when the timeout passes first
+     */
+    public long acquire(final long timeoutMillis) throws IntegrationException {
+        final long start = System.nanoTime();
+        final long timeoutNanos = timeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+        queueDepth.incrementAndGet();
+        boolean admitted = false;
+        try {
+            final long rateWaitNanos = reserve(timeoutNanos);
+            if (rateWaitNanos < 0) {
+                throw new IntegrationException(String.format("The request could not be sent within %d ms, the rate limit allows no earlier start", timeoutMillis));
+            }
+            try {
+                if (rateWaitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(rateWaitNanos);
+                }
+                if (inFlightPermits != null) {
+                    if (timeoutMillis <= 0) {
+                        inFlightPermits.acquire();
+                    } else if (!inFlightPermits.tryAcquire(timeoutNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) {
+                        throw new IntegrationException(String.format("The request could not be sent within %d ms, %d requests are already in flight", timeoutMillis, maxRequestsInFlight));
+                    }
+                }
+                admitted = true;
+            } finally {
+                if (!admitted) {
+                    // the request is not sent, so it must not use up the rate
+                    refund();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while waiting to send the request", e);
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+
+        return recordAcquired(start);
+    }
+
+    /**
+     * Like {@link #acquire(long)} without blocking the caller: the returned future completes with the nanoseconds spent waiting once the request may be sent, or fails with an IntegrationException when timeoutMillis passes first.
+     * Only a completed future must be followed by a {@link #release(int, long)}. The future is completed on the thread that frees the permit, so its dependent stages must not block.
+     * @param timeoutMillis 0 for no limit
+     */
+    public CompletableFuture<Long> acquireAsync(final long timeoutMillis) {
+        final long timeoutNanos = timeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+        final PendingAcquire pendingAcquire = new PendingAcquire(timeoutMillis);
+        queueDepth.incrementAndGet();
+        final long rateWaitNanos = reserve(timeoutNanos);
+        if (rateWaitNanos < 0) {
+            queueDepth.decrementAndGet();
+            pendingAcquire.future.completeExceptionally(new IntegrationException(String.format("The request could not be sent within %d ms, the rate limit allows no earlier start", timeoutMillis)));
+            return pendingAcquire.future;
+        }
+
+        if (timeoutMillis > 0) {
+            pendingAcquire.timeout = SCHEDULER.schedule(() -> expire(pendingAcquire), timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        if (rateWaitNanos > 0) {
+            SCHEDULER.schedule(() -> admitOrQueue(pendingAcquire), rateWaitNanos, TimeUnit.NANOSECONDS);
+        } else {
+            admitOrQueue(pendingAcquire);
+        }
+        return pendingAcquire.future;
+    }
+
+    /**
+     * @param statusCode the status code of the response, or -1 when no response was received
+     * @param latencyNanos how long the Hub took to answer
+     */
+    public void release(final int statusCode, final long latencyNanos) {
+        releaseInFlightPermit();
+        if (statusCode == TOO_MANY_REQUESTS_429) {
+            throttledCount.increment();
+        }
+        adaptRate(statusCode, latencyNanos);
+    }
+
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    public int getMaxRequestsInFlight() {
+        return maxRequestsInFlight;
+    }
+
+    /**
+     * The rate currently allowed, lower than the maximum while the Hub is throttling or slow.
+     */
+    public synchronized double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * The number of requests currently waiting to be sent.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getRequestsInFlight() {
+        return inFlightPermits == null ? 0 : maxRequestsInFlight - inFlightPermits.availablePermits();
+    }
+
+    public long getAcquiredCount() {
+        return acquiredCount.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getAverageWaitNanos() {
+        final long acquired = getAcquiredCount();
+        return acquired == 0 ? 0 : getTotalWaitNanos() / acquired;
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.sum();
+    }
+
+    /**
+     * Takes a permit from the bucket, when it is empty the permit is borrowed from the future and the caller has to wait until then.
+     * Returns -1 without taking a permit when the wait would be longer than maxWaitNanos.
+     */
+    private synchronized long reserve(final long maxWaitNanos) {
+        if (maxRequestsPerSecond <= 0) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(getBurstSize(), storedPermits + (now - nextFreeNanos) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            nextFreeNanos = now;
+        }
+        final long waitNanos = nextFreeNanos - now;
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        if (storedPermits >= 1) {
+            storedPermits -= 1;
+        } else {
+            nextFreeNanos += (long) ((1 - storedPermits) * TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            storedPermits = 0;
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Gives back a permit taken by {@link #reserve(long)} for a request that is not sent.
+     */
+    private synchronized void refund() {
+        if (maxRequestsPerSecond <= 0) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (nextFreeNanos > now) {
+            nextFreeNanos = Math.max(now, nextFreeNanos - (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        } else {
+            storedPermits = Math.min(getBurstSize(), storedPermits + 1);
+        }
+    }
+
+    private long recordAcquired(final long start) {
+        final long waitNanos = System.nanoTime() - start;
+        acquiredCount.increment();
+        totalWaitNanos.add(waitNanos);
+        return waitNanos;
+    }
+
+    private void admitOrQueue(final PendingAcquire pendingAcquire) {
+        synchronized (pendingAcquires) {
+            if (pendingAcquire.finished.get()) {
+                return;
+            }
+            if (inFlightPermits != null && !inFlightPermits.tryAcquire()) {
+                pendingAcquires.add(pendingAcquire);
+                return;
+            }
+        }
+        admit(pendingAcquire);
+    }
+
+    private void releaseInFlightPermit() {
+        if (inFlightPermits == null) {
+            return;
+        }
+        inFlightPermits.release();
+        final List<PendingAcquire> admitted = new ArrayList<>();
+        synchronized (pendingAcquires) {
+            // the queue is checked under the same lock it is filled with, so a freed permit can't be missed
+            while (!pendingAcquires.isEmpty() && inFlightPermits.tryAcquire()) {
+                admitted.add(pendingAcquires.poll());
+            }
+        }
+        // the futures complete outside the lock, their dependent stages may start requests
+        admitted.forEach(this::admit);
+    }
+
+    private void admit(final PendingAcquire pendingAcquire) {
+        if (!pendingAcquire.finished.compareAndSet(false, true)) {
+            // expired while the permit was taken
+            releaseInFlightPermit();
+            return;
+        }
+        if (pendingAcquire.timeout != null) {
+            pendingAcquire.timeout.cancel(false);
+        }
+        queueDepth.decrementAndGet();
+        if (!pendingAcquire.future.complete(recordAcquired(pendingAcquire.start))) {
+            // cancelled by the caller
+            releaseInFlightPermit();
+        }
+    }
+
+    private void expire(final PendingAcquire pendingAcquire) {
+        if (!pendingAcquire.finished.compareAndSet(false, true)) {
+            return;
+        }
+        final boolean queued;
+        synchronized (pendingAcquires) {
+            queued = pendingAcquires.remove(pendingAcquire);
+        }
+        queueDepth.decrementAndGet();
+        refund();
+        final String reason = queued ? String.format("%d requests are already in flight", maxRequestsInFlight) : "the rate limit allows no earlier start";
+        pendingAcquire.future.completeExceptionally(new IntegrationException(String.format("The request could not be sent within %d ms, %s", pendingAcquire.timeoutMillis, reason)));
+    }
+
+    private synchronized void adaptRate(final int statusCode, final long latencyNanos) {
+        // nothing was learned about the Hub without a response
+        if (maxRequestsPerSecond <= 0 || statusCode < 0) {
+            return;
+        }
+        final double minRequestsPerSecond = maxRequestsPerSecond * MIN_RATE_FRACTION;
+        if (statusCode == TOO_MANY_REQUESTS_429) {
+            requestsPerSecond = Math.max(minRequestsPerSecond, requestsPerSecond * THROTTLED_RATE_FACTOR);
+            storedPermits = 0;
+        } else if (latencySamples >= MIN_LATENCY_SAMPLES && latencyNanos > averageLatencyNanos * LATENCY_SPIKE_FACTOR) {
+            requestsPerSecond = Math.max(minRequestsPerSecond, requestsPerSecond * SLOW_RATE_FACTOR);
+        } else {
+            requestsPerSecond = Math.min(maxRequestsPerSecond, requestsPerSecond + maxRequestsPerSecond * RECOVERY_RATE_FRACTION);
+        }
+
+        averageLatencyNanos = latencySamples == 0 ? latencyNanos : averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+        latencySamples++;
+    }
+
+    private double getBurstSize() {
+        return Math.max(1, requestsPerSecond);
+    }
+
+    private static class PendingAcquire {
+        private final long start = System.nanoTime();
+        private final long timeoutMillis;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        // set by whichever of admit and expire comes first
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile ScheduledFuture<?> timeout;
+
+        private PendingAcquire(final long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import org.apache.http.client.config.RequestConfig;
+
+/**
+ * Timeouts for a single request, overriding the ones of its connection, see {@link BlackduckRestConnection#executeRequest(com.synopsys.integration.rest.request.Request, RequestTimeouts)}. A value of 0 keeps the connection's setting.
+ */
+public class RequestTimeouts {
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final int connectionRequestTimeoutMillis;
+    private final long deadlineMillis;
+
+    private RequestTimeouts(final Builder builder) {
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.socketTimeoutMillis = builder.socketTimeoutMillis;
+        this.connectionRequestTimeoutMillis = builder.connectionRequestTimeoutMillis;
+        this.deadlineMillis = builder.deadlineMillis;
+    }
+
+    /**
+     * Applies the timeouts that are set to a copy of the given config.
+     */
+    public RequestConfig applyTo(final RequestConfig requestConfig) {
+        final RequestConfig.Builder requestConfigBuilder = RequestConfig.copy(requestConfig);
+        if (connectTimeoutMillis > 0) {
+            requestConfigBuilder.setConnectTimeout(connectTimeoutMillis);
+        }
+        if (socketTimeoutMillis > 0) {
+            requestConfigBuilder.setSocketTimeout(socketTimeoutMillis);
+        }
+        if (connectionRequestTimeoutMillis > 0) {
+            requestConfigBuilder.setConnectionRequestTimeout(connectionRequestTimeoutMillis);
+        }
+        return requestConfigBuilder.build();
+    }
+
+    /**
+     * How long to wait for the connection to the Hub to be established.
+     */
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for data from the Hub before giving up on a response.
+     */
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for a connection from the pool.
+     */
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * How long the request may take in total: waiting for the request governor or an identical coalesced request, re-authentication, retries and the waits between them.
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public static class Builder {
+        private int connectTimeoutMillis;
+        private int socketTimeoutMillis;
+        private int connectionRequestTimeoutMillis;
+        private long deadlineMillis;
+
+        public Builder connectTimeoutMillis(final int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public Builder socketTimeoutMillis(final int socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        public Builder connectionRequestTimeoutMillis(final int connectionRequestTimeoutMillis) {
+            this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+            return this;
+        }
+
+        public Builder deadlineMillis(final long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+            return this;
+        }
+
+        public RequestTimeouts build() {
+            return new RequestTimeouts(this);
+        }
+    }
+
+}
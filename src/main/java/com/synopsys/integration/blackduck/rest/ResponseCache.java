@@ -0,0 +1,371 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.InputStreamEntity;
+
+import com.synopsys.integration.log.IntLogger;
+import com.synopsys.integration.rest.RestConstants;
+
+/**
+ * Keeps GET responses that carry an ETag or Last-Modified header so they can be revalidated with a conditional request and served from memory when the Hub answers 304 Not Modified.
+ * The memory tier is a least recently used map bounded by the total size of the bodies. When a directory is given every entry is also written to disk, and memory misses fall back to it.
+ * The disk tier is bounded by the total size of its files, the least recently used files are deleted first.
+ */
+public class ResponseCache {
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 16 * 1024 * 1024;
+    public static final long DEFAULT_MAX_ENTRY_BYTES = 1024 * 1024;
+    public static final long DEFAULT_MAX_DISK_BYTES = 256 * 1024 * 1024;
+
+    // credentials and connection management, they must not be written to disk or replayed with a cached response
+    private static final List<String> UNCACHED_HEADERS = Arrays.asList("Set-Cookie", "Set-Cookie2", HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.TE, "Trailer", HttpHeaders.UPGRADE,
+            HttpHeaders.AUTHORIZATION, HttpHeaders.WWW_AUTHENTICATE, "Authentication-Info", RestConstants.X_CSRF_TOKEN);
+    private static final String PROXY_HEADER_PREFIX = "proxy-";
+
+    private final long maxMemoryBytes;
+    private final long maxEntryBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+    private final LinkedHashMap<String, CachedResponse> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    // guarded by this, -1 until the files of the directory were counted once
+    private long diskBytes = -1;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder diskWriteFailureCount = new LongAdder();
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_MEMORY_BYTES, DEFAULT_MAX_ENTRY_BYTES, null);
+    }
+
+    /**
+     * @param diskDirectory where to keep the on-disk copies, or null for a memory only cache
+     */
+    public ResponseCache(final long maxMemoryBytes, final long maxEntryBytes, final Path diskDirectory) {
+        this(maxMemoryBytes, maxEntryBytes, diskDirectory, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * @param diskDirectory where to keep the on-disk copies, or null for a memory only cache
+     */
+    public ResponseCache(final long maxMemoryBytes, final long maxEntryBytes, final Path diskDirectory, final long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * Responses are cached per credentials, uri and Accept header. A cache shared between connections must never serve one user's response to another, and the Hub serves different representations of a resource based on the Accept header.
+     * @param credentialsKey identifies the credentials the request is sent with, it is only part of the key as a hash
+     */
+    public static String createKey(final HttpRequest request, final String credentialsKey) {
+        final Header accept = request.getFirstHeader(HttpHeaders.ACCEPT);
+        return DigestUtils.sha256Hex(StringUtils.defaultString(credentialsKey)) + "|" + request.getRequestLine().getUri() + "|" + (accept == null ? "" : accept.getValue());
+    }
+
+    public Optional<CachedResponse> get(final String key) {
+        synchronized (memoryEntries) {
+            final CachedResponse cachedResponse = memoryEntries.get(key);
+            if (cachedResponse != null) {
+                return Optional.of(cachedResponse);
+            }
+        }
+
+        final CachedResponse diskResponse = readFromDisk(key);
+        if (diskResponse != null) {
+            putInMemory(key, diskResponse);
+        }
+        return Optional.ofNullable(diskResponse);
+    }
+
+    /**
+     * Records that the cached response was served instead of a full response from the server.
+     */
+    public void recordHit(final CachedResponse cachedResponse) {
+        hitCount.increment();
+        bytesSaved.add(cachedResponse.getBodyLength());
+    }
+
+    /**
+     * Buffers and caches a full response when it has a validator and a body of at most maxEntryBytes. A buffered response is closed and a copy is returned, otherwise the response itself.
+     * Failing to write the disk copy only costs the disk copy, it is logged and the response is still returned. When reading the body fails the response is closed.
+     */
+    public CloseableHttpResponse store(final String key, final CloseableHttpResponse httpResponse, final IntLogger logger) throws IOException {
+        missCount.increment();
+        final HttpEntity entity = httpResponse.getEntity();
+        if (entity == null || !isCacheable(httpResponse)) {
+            return httpResponse;
+        }
+
+        final CachedResponse cachedResponse;
+        try {
+            final InputStream content = entity.getContent();
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            IOUtils.copyLarge(content, buffer, 0, maxEntryBytes + 1);
+            if (buffer.size() > maxEntryBytes) {
+                // too large to cache, hand out the bytes already read followed by the rest of the stream
+                final InputStreamEntity remainingEntity = new InputStreamEntity(new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), content), -1);
+                remainingEntity.setContentType(entity.getContentType());
+                httpResponse.setEntity(remainingEntity);
+                return httpResponse;
+            }
+            content.close();
+            cachedResponse = new CachedResponse(httpResponse.getStatusLine().getStatusCode(), httpResponse.getStatusLine().getReasonPhrase(), getCacheableHeaders(httpResponse.getAllHeaders()), buffer.toByteArray());
+        } catch (final IOException e) {
+            httpResponse.close();
+            throw e;
+        }
+        httpResponse.close();
+
+        putInMemory(key, cachedResponse);
+        try {
+            writeToDisk(key, cachedResponse);
+        } catch (final IOException e) {
+            diskWriteFailureCount.increment();
+            logger.warn("Could not write the cached response to disk: " + e.getMessage());
+        }
+        return cachedResponse.createHttpResponse();
+    }
+
+    public void clear() {
+        synchronized (memoryEntries) {
+            memoryEntries.clear();
+            memoryBytes = 0;
+        }
+        if (diskDirectory != null) {
+            synchronized (this) {
+                try (final Stream<Path> files = Files.list(diskDirectory)) {
+                    files.filter(file -> file.toString().endsWith(".response")).forEach(file -> file.toFile().delete());
+                } catch (final IOException ignored) {
+                    // nothing cached on disk yet
+                }
+                diskBytes = -1;
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public double getHitRatio() {
+        final long hits = getHitCount();
+        final long requests = hits + getMissCount();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * The number of body bytes that were served from the cache instead of being downloaded again.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * The number of responses that were only cached in memory because writing them to disk failed.
+     */
+    public long getDiskWriteFailureCount() {
+        return diskWriteFailureCount.sum();
+    }
+
+    public long getMemoryBytes() {
+        synchronized (memoryEntries) {
+            return memoryBytes;
+        }
+    }
+
+    public int getMemoryEntryCount() {
+        synchronized (memoryEntries) {
+            return memoryEntries.size();
+        }
+    }
+
+    private Header[] getCacheableHeaders(final Header[] headers) {
+        return Arrays.stream(headers)
+                   .filter(header -> !header.getName().toLowerCase().startsWith(PROXY_HEADER_PREFIX))
+                   .filter(header -> UNCACHED_HEADERS.stream().noneMatch(header.getName()::equalsIgnoreCase))
+                   .toArray(Header[]::new);
+    }
+
+    private boolean isCacheable(final CloseableHttpResponse httpResponse) {
+        for (final Header cacheControl : httpResponse.getHeaders(HttpHeaders.CACHE_CONTROL)) {
+            if (cacheControl.getValue().toLowerCase().contains("no-store")) {
+                return false;
+            }
+        }
+        return httpResponse.containsHeader(HttpHeaders.ETAG) || httpResponse.containsHeader(HttpHeaders.LAST_MODIFIED);
+    }
+
+    private void putInMemory(final String key, final CachedResponse cachedResponse) {
+        synchronized (memoryEntries) {
+            final CachedResponse replaced = memoryEntries.put(key, cachedResponse);
+            if (replaced != null) {
+                memoryBytes -= replaced.getBodyLength();
+            }
+            memoryBytes += cachedResponse.getBodyLength();
+
+            final Iterator<Map.Entry<String, CachedResponse>> leastRecentlyUsed = memoryEntries.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && leastRecentlyUsed.hasNext()) {
+                memoryBytes -= leastRecentlyUsed.next().getValue().getBodyLength();
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    private CachedResponse readFromDisk(final String key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        final Path file = getDiskFile(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final CachedResponse cachedResponse = CachedResponse.readFrom(inputStream);
+            // the modification time orders the files for eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return cachedResponse;
+        } catch (final IOException e) {
+            deleteDiskFile(file);
+            return null;
+        }
+    }
+
+    private void writeToDisk(final String key, final CachedResponse cachedResponse) throws IOException {
+        if (diskDirectory == null) {
+            return;
+        }
+        Files.createDirectories(diskDirectory);
+        final Path file = getDiskFile(key);
+        // write next to the final file and move it in place so readers never see a partial entry
+        final Path temporaryFile = Files.createTempFile(diskDirectory, "entry", ".tmp");
+        try {
+            try (final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                cachedResponse.writeTo(outputStream);
+            }
+            synchronized (this) {
+                final long replacedBytes = file.toFile().length();
+                final long writtenBytes = Files.size(temporaryFile);
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                recordDiskWrite(writtenBytes - replacedBytes);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Keeps count of the bytes on disk so the directory is only listed the first time and when it is over budget.
+     */
+    private synchronized void recordDiskWrite(final long addedBytes) throws IOException {
+        if (diskBytes < 0) {
+            diskBytes = countDiskBytes(listDiskFiles());
+        } else {
+            diskBytes += addedBytes;
+        }
+        if (diskBytes > maxDiskBytes) {
+            evictFromDisk();
+        }
+    }
+
+    private synchronized void deleteDiskFile(final Path file) {
+        final long fileBytes = file.toFile().length();
+        if (file.toFile().delete() && diskBytes >= 0) {
+            diskBytes -= fileBytes;
+        }
+    }
+
+    private synchronized void evictFromDisk() throws IOException {
+        final List<Path> files = listDiskFiles();
+        diskBytes = countDiskBytes(files);
+        files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        for (final Path file : files) {
+            if (diskBytes <= maxDiskBytes) {
+                return;
+            }
+            final long fileBytes = file.toFile().length();
+            if (Files.deleteIfExists(file)) {
+                diskBytes -= fileBytes;
+            }
+        }
+    }
+
+    private List<Path> listDiskFiles() throws IOException {
+        try (final Stream<Path> entries = Files.list(diskDirectory)) {
+            return entries.filter(file -> file.toString().endsWith(".response")).collect(Collectors.toList());
+        }
+    }
+
+    private long countDiskBytes(final List<Path> files) {
+        long bytes = 0;
+        for (final Path file : files) {
+            bytes += file.toFile().length();
+        }
+        return bytes;
+    }
+
+    private Path getDiskFile(final String key) {
+        return diskDirectory.resolve(DigestUtils.sha256Hex(key) + ".response");
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.net.URI;
+
+/**
+ * Receives the timings of the requests and authentications of a {@link BlackduckRestConnection}, for example to feed a metrics registry. The callbacks run on the thread that executed the request, so they should return quickly.
+ * Uris are passed as requested, a listener building per-endpoint metrics should reduce them to a template to keep the number of distinct endpoints small.
+ */
+public interface RestConnectionMetricsListener {
+    RestConnectionMetricsListener NOOP = new RestConnectionMetricsListener() {
+    };
+
+    /**
+     * A response was received, including the final response of a request that failed with an error status code.
+     */
+    default void requestCompleted(final String method, final URI uri, final int statusCode, final long durationNanos) {
+    }
+
+    /**
+     * No response was received, for example because the connection failed.
+     */
+    default void requestFailed(final String method, final URI uri, final Exception exception, final long durationNanos) {
+    }
+
+    /**
+     * The request is sent again, the statusCode is the one of the response that caused the retry.
+     */
+    default void requestRetried(final String method, final URI uri, final int statusCode) {
+    }
+
+    /**
+     * The request waited for the {@link RequestGovernor} of its Hub, queueDepth is the number of requests still waiting.
+     */
+    default void requestAdmitted(final String method, final URI uri, final long waitNanos, final int queueDepth) {
+    }
+
+    /**
+     * The request was answered by an identical request that was already in flight, see {@link RequestCoalescer}.
+     */
+    default void requestCoalesced(final String method, final URI uri) {
+    }
+
+    /**
+     * The {@link CircuitBreaker} of a Hub changed its state, name identifies the Hub.
+     */
+    default void circuitBreakerStateChanged(final String name, final CircuitBreaker.State previousState, final CircuitBreaker.State newState) {
+    }
+
+    default void authenticationCompleted(final boolean successful, final long durationNanos) {
+    }
+
+}
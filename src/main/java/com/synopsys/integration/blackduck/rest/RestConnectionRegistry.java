@@ -0,0 +1,139 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.synopsys.integration.exception.IntegrationException;
+
+/**
+ * Shares connected and authenticated connections between the users of the same Hub with the same credentials, see {@link BlackduckRestConnectionBuilder#createConnectionKey()}.
+ * Each {@link #acquire(BlackduckRestConnectionBuilder)} must be paired with closing the returned {@link SharedRestConnection}. The connection is closed when its last user closes it.
+ */
+public class RestConnectionRegistry {
+    private static final RestConnectionRegistry SHARED_INSTANCE = new RestConnectionRegistry();
+
+    private final Map<String, RegisteredConnection> connections = new HashMap<>();
+
+    public static RestConnectionRegistry getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Returns the registered connection for the builder's key, or builds and connects a new one.
+     */
+    @SuppressWarnings("unchecked")
+    public <C extends BlackduckRestConnection> SharedRestConnection<C> acquire(final BlackduckRestConnectionBuilder<C> builder) throws IntegrationException {
+        final String key = builder.createConnectionKey();
+        final RegisteredConnection registeredConnection = register(key, builder);
+
+        final SharedRestConnection<C> sharedConnection = new SharedRestConnection<>(this, key, (C) registeredConnection.connection);
+        try {
+            registeredConnection.connect();
+        } catch (final IntegrationException | RuntimeException e) {
+            try {
+                release(key);
+            } catch (final IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        return sharedConnection;
+    }
+
+    // builds outside the lock so that one slow build does not hold up the users of every other key; the connection that loses the race is closed
+    private RegisteredConnection register(final String key, final BlackduckRestConnectionBuilder<?> builder) {
+        synchronized (connections) {
+            final RegisteredConnection registeredConnection = connections.get(key);
+            if (registeredConnection != null) {
+                registeredConnection.referenceCount++;
+                return registeredConnection;
+            }
+        }
+
+        final BlackduckRestConnection connection = builder.build();
+        final RegisteredConnection registeredConnection;
+        synchronized (connections) {
+            registeredConnection = connections.computeIfAbsent(key, ignored -> new RegisteredConnection(connection));
+            registeredConnection.referenceCount++;
+        }
+        if (registeredConnection.connection != connection) {
+            try {
+                connection.close();
+            } catch (final IOException e) {
+                connection.getLogger().debug("Could not close the unused connection: " + e.getMessage());
+            }
+        }
+        return registeredConnection;
+    }
+
+    public int getConnectionCount() {
+        synchronized (connections) {
+            return connections.size();
+        }
+    }
+
+    /**
+     * The number of users of the connection with the given key, 0 when there is none.
+     */
+    public int getReferenceCount(final String key) {
+        synchronized (connections) {
+            final RegisteredConnection registeredConnection = connections.get(key);
+            return registeredConnection == null ? 0 : registeredConnection.referenceCount;
+        }
+    }
+
+    void release(final String key) throws IOException {
+        final RegisteredConnection unusedConnection;
+        synchronized (connections) {
+            final RegisteredConnection registeredConnection = connections.get(key);
+            if (registeredConnection == null || --registeredConnection.referenceCount > 0) {
+                return;
+            }
+            unusedConnection = connections.remove(key);
+        }
+        unusedConnection.connection.close();
+    }
+
+    private static class RegisteredConnection {
+        private final BlackduckRestConnection connection;
+        private int referenceCount;
+        private boolean connected;
+
+        private RegisteredConnection(final BlackduckRestConnection connection) {
+            this.connection = connection;
+        }
+
+        // the first user connects, the others wait for it instead of authenticating again
+        private synchronized void connect() throws IntegrationException {
+            if (!connected) {
+                connection.connect();
+                connected = true;
+            }
+        }
+    }
+
+}
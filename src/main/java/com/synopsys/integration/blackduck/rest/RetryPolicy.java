@@ -0,0 +1,163 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
+
+import com.synopsys.integration.rest.HttpMethod;
+import com.synopsys.integration.rest.RestConstants;
+
+/**
+ * Decides whether a request the Hub could not serve (by default 429 Too Many Requests and 503 Service Unavailable) is sent again, and how long to wait before.
+ * Only idempotent methods are retried. The wait is the Retry-After the Hub sent, otherwise an exponential backoff with full jitter.
+ * A Retry-After longer than the maximum backoff is not shortened, the request is not retried.
+ */
+public class RetryPolicy {
+    public static final int TOO_MANY_REQUESTS_429 = 429;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLISECONDS = 500;
+    public static final long DEFAULT_MAX_BACKOFF_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+    public static final Set<Integer> DEFAULT_RETRYABLE_STATUS_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TOO_MANY_REQUESTS_429, RestConstants.UNAVAILABLE_503)));
+
+    public static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0, 0);
+
+    /**
+     * Returned by {@link #getBackoffMillis(HttpResponse, int)} when the Hub asked to wait longer than the maximum backoff.
+     */
+    public static final long DO_NOT_RETRY = -1;
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.TRACE, HttpMethod.PUT, HttpMethod.DELETE);
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Set<Integer> retryableStatusCodes;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLISECONDS, DEFAULT_MAX_BACKOFF_MILLISECONDS);
+    }
+
+    public RetryPolicy(final int maxAttempts, final long initialBackoffMillis, final long maxBackoffMillis) {
+        this(maxAttempts, initialBackoffMillis, maxBackoffMillis, DEFAULT_RETRYABLE_STATUS_CODES);
+    }
+
+    /**
+     * @param maxAttempts the number of times a request is sent at most, including the first attempt
+     * @param maxBackoffMillis the longest wait between attempts, a request with a longer Retry-After is not retried
+     */
+    public RetryPolicy(final int maxAttempts, final long initialBackoffMillis, final long maxBackoffMillis, final Set<Integer> retryableStatusCodes) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryableStatusCodes = retryableStatusCodes;
+    }
+
+    /**
+     * @param attempt the attempt that received the status code, starting at 1
+     */
+    public boolean isRetryable(final HttpUriRequest request, final int statusCode, final int attempt) {
+        return attempt < maxAttempts && retryableStatusCodes.contains(statusCode) && isIdempotent(request);
+    }
+
+    /**
+     * @return the wait before the next attempt, or {@link #DO_NOT_RETRY}
+     */
+    public long getBackoffMillis(final HttpResponse response, final int attempt) {
+        final long retryAfterMillis = getRetryAfterMillis(response);
+        if (retryAfterMillis > maxBackoffMillis) {
+            return DO_NOT_RETRY;
+        }
+        if (retryAfterMillis >= 0) {
+            return retryAfterMillis;
+        }
+
+        final long exponentialBackoffMillis = initialBackoffMillis << Math.min(attempt - 1, 30);
+        final long backoffCeilingMillis = Math.min(Math.max(exponentialBackoffMillis, 0), maxBackoffMillis);
+        return ThreadLocalRandom.current().nextLong(backoffCeilingMillis + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    private boolean isIdempotent(final HttpUriRequest request) {
+        for (final HttpMethod httpMethod : IDEMPOTENT_METHODS) {
+            if (httpMethod.name().equals(request.getMethod())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retry-After is either a number of seconds or a date, -1 when the response has none.
+     */
+    private long getRetryAfterMillis(final HttpResponse response) {
+        final Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null || StringUtils.isBlank(retryAfter.getValue())) {
+            return -1;
+        }
+        final String value = retryAfter.getValue().trim();
+        if (StringUtils.isNumeric(value)) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+            } catch (final NumberFormatException e) {
+                // too large for a long, longer than any backoff so the request is not retried
+                return Long.MAX_VALUE;
+            }
+        }
+        final Date retryDate = DateUtils.parseDate(value);
+        if (retryDate == null) {
+            return -1;
+        }
+        return Math.max(retryDate.getTime() - System.currentTimeMillis(), 0);
+    }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A use of a connection shared through a {@link RestConnectionRegistry}. Close this instead of the connection, the connection stays open while others still use it.
+ */
+public class SharedRestConnection<C extends BlackduckRestConnection> implements Closeable {
+    private final RestConnectionRegistry registry;
+    private final String key;
+    private final C connection;
+    private boolean closed;
+
+    public SharedRestConnection(final RestConnectionRegistry registry, final String key, final C connection) {
+        this.registry = registry;
+        this.key = key;
+        this.connection = connection;
+    }
+
+    public C getConnection() {
+        return connection;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            registry.release(key);
+        }
+    }
+
+}
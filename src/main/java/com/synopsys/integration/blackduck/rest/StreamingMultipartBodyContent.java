@@ -0,0 +1,65 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+
+import com.synopsys.integration.rest.body.BodyContent;
+import com.synopsys.integration.rest.request.Request;
+
+/**
+ * A multipart request body whose file and stream parts are read while it is sent. When every part has a known size the body is sent with a Content-Length, otherwise with chunked transfer encoding.
+ */
+public class StreamingMultipartBodyContent implements BodyContent {
+    private final MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create();
+
+    public StreamingMultipartBodyContent addFile(final String name, final Path file) {
+        multipartEntityBuilder.addBinaryBody(name, file.toFile(), ContentType.DEFAULT_BINARY, file.getFileName().toString());
+        return this;
+    }
+
+    /**
+     * The stream can only be sent once, see {@link InputStreamBodyContent}.
+     */
+    public StreamingMultipartBodyContent addStream(final String name, final InputStream inputStream, final String fileName) {
+        multipartEntityBuilder.addBinaryBody(name, inputStream, ContentType.DEFAULT_BINARY, fileName);
+        return this;
+    }
+
+    public StreamingMultipartBodyContent addText(final String name, final String value) {
+        multipartEntityBuilder.addTextBody(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpEntity createEntity(final Request request) {
+        return multipartEntityBuilder.build();
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.rest;
+
+import com.synopsys.integration.exception.IntegrationException;
+
+/**
+ * Carries an IntegrationException out of APIs that can't throw checked exceptions, such as Iterator and Stream.
+ */
+public class UncheckedIntegrationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedIntegrationException(final IntegrationException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized IntegrationException getCause() {
+        return (IntegrationException) super.getCause();
+    }
+
+}
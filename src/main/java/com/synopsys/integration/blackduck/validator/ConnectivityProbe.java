@@ -0,0 +1,218 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.validator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection;
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnectionBuilder;
+import com.synopsys.integration.blackduck.rest.RestConnectionRegistry;
+import com.synopsys.integration.blackduck.rest.SharedRestConnection;
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.rest.connection.RestConnectionField;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.validator.ValidationResult;
+import com.synopsys.integration.validator.ValidationResultEnum;
+import com.synopsys.integration.validator.ValidationResults;
+
+/**
+ * Checks that the Hub of a configuration is reachable and accepts its credentials. The connections come from a {@link RestConnectionRegistry} and stay open until the probe is closed, so probing again reuses the pooled, authenticated connection instead of a new handshake.
+ * Outcomes, failures included, are remembered per configuration for a time to live, so a Hub that is down is not probed on every call.
+ */
+public class ConnectivityProbe implements Closeable {
+    public static final long DEFAULT_TIME_TO_LIVE_MILLISECONDS = 60 * 1000;
+    public static final String PROBE_PATH = "api/current-version";
+
+    private final RestConnectionRegistry registry;
+    private final long timeToLiveNanos;
+    private final Map<String, ProbeOutcome> outcomes = new ConcurrentHashMap<>();
+    private final Map<String, Object> probeLocks = new ConcurrentHashMap<>();
+    private final Map<String, SharedRestConnection<?>> connections = new ConcurrentHashMap<>();
+
+    private final LongAdder probeCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    public ConnectivityProbe() {
+        this(RestConnectionRegistry.getSharedInstance(), DEFAULT_TIME_TO_LIVE_MILLISECONDS);
+    }
+
+    public ConnectivityProbe(final RestConnectionRegistry registry, final long timeToLiveMillis) {
+        this.registry = registry;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+    }
+
+    /**
+     * Validates the configuration and, when it is valid, requests {@value #PROBE_PATH} from the Hub. A failed probe is reported as an error on the url.
+     */
+    public ValidationResults probe(final BlackduckRestConnectionBuilder<?> builder) {
+        final ValidationResults configurationResults = builder.validate();
+        if (!configurationResults.isSuccess()) {
+            return configurationResults;
+        }
+
+        removeExpiredOutcomes();
+        final String key = builder.createConnectionKey();
+        // one probe per configuration at a time, the others wait for its outcome
+        synchronized (probeLocks.computeIfAbsent(key, ignored -> new Object())) {
+            final ProbeOutcome outcome = outcomes.get(key);
+            if (outcome != null && !isExpired(outcome, System.nanoTime())) {
+                hitCount.increment();
+                return outcome.results;
+            }
+
+            probeCount.increment();
+            final ValidationResults results = probeHub(key, builder, configurationResults);
+            outcomes.put(key, new ProbeOutcome(results, System.nanoTime()));
+            return results;
+        }
+    }
+
+    /**
+     * Drops the outcomes that expired and their locks, at most once per time to live. A configuration probed while its lock is dropped may be probed twice at once, which costs one request.
+     */
+    private void removeExpiredOutcomes() {
+        final long now = System.nanoTime();
+        if (now - lastSweepNanos < timeToLiveNanos) {
+            return;
+        }
+        lastSweepNanos = now;
+        outcomes.forEach((key, outcome) -> {
+            if (isExpired(outcome, now) && outcomes.remove(key, outcome)) {
+                probeLocks.remove(key);
+            }
+        });
+    }
+
+    private boolean isExpired(final ProbeOutcome outcome, final long nowNanos) {
+        return nowNanos - outcome.probedNanos >= timeToLiveNanos;
+    }
+
+    /**
+     * Adds the outcome of the probe to the results of validating the configuration.
+     */
+    private ValidationResults probeHub(final String key, final BlackduckRestConnectionBuilder<?> builder, final ValidationResults results) {
+        try {
+            final BlackduckRestConnection connection = getConnection(key, builder);
+            final Request request = new Request.Builder(new URL(connection.getBaseUrl(), PROBE_PATH).toString()).build();
+            connection.executeRequest(request).close();
+            return results;
+        } catch (final IntegrationException | IOException | RuntimeException e) {
+            // a broken connection is not reused, the next probe connects again
+            releaseConnection(key);
+            results.addResult(RestConnectionField.URL, new ValidationResult(ValidationResultEnum.ERROR, "Could not reach the Hub: " + e.getMessage(), e));
+            return results;
+        }
+    }
+
+    private BlackduckRestConnection getConnection(final String key, final BlackduckRestConnectionBuilder<?> builder) throws IntegrationException {
+        SharedRestConnection<?> sharedConnection = connections.get(key);
+        if (sharedConnection == null) {
+            sharedConnection = registry.acquire(builder);
+            connections.put(key, sharedConnection);
+        }
+        return sharedConnection.getConnection();
+    }
+
+    private void releaseConnection(final String key) {
+        final SharedRestConnection<?> sharedConnection = connections.remove(key);
+        if (sharedConnection != null) {
+            try {
+                sharedConnection.close();
+            } catch (final IOException ignored) {
+                // the connection is discarded either way
+            }
+        }
+    }
+
+    /**
+     * Forgets the outcome for the configuration, the next probe asks the Hub again.
+     */
+    public void invalidate(final BlackduckRestConnectionBuilder<?> builder) {
+        final String key = builder.createConnectionKey();
+        outcomes.remove(key);
+        probeLocks.remove(key);
+    }
+
+    /**
+     * The number of configurations with a remembered outcome, expired ones included until they are dropped.
+     */
+    public int getOutcomeCount() {
+        return outcomes.size();
+    }
+
+    public long getProbeCount() {
+        return probeCount.sum();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Releases the connections kept for probing.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException closeException = null;
+        for (final String key : new ArrayList<>(connections.keySet())) {
+            final SharedRestConnection<?> sharedConnection = connections.remove(key);
+            try {
+                if (sharedConnection != null) {
+                    sharedConnection.close();
+                }
+            } catch (final IOException e) {
+                if (closeException == null) {
+                    closeException = e;
+                } else {
+                    closeException.addSuppressed(e);
+                }
+            }
+        }
+        outcomes.clear();
+        probeLocks.clear();
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    private static class ProbeOutcome {
+        private final ValidationResults results;
+        private final long probedNanos;
+
+        private ProbeOutcome(final ValidationResults results, final long probedNanos) {
+            this.results = results;
+            this.probedNanos = probedNanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * hub-common-rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.synopsys.integration.blackduck.validator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.synopsys.integration.validator.AbstractValidator;
+import com.synopsys.integration.validator.ValidationResults;
+
+/**
+ * Remembers the outcome of validating a configuration by a hash of its content, so building many connections with the same configuration validates it once.
+ * Validation only looks at the configuration itself, so entries never go stale. Beyond the maximum size the least recently used entries are dropped.
+ */
+public class ValidationCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final ValidationCache SHARED_INSTANCE = new ValidationCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, ValidationResults> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public ValidationCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public static ValidationCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Returns the results of an earlier validation of the same configuration, or validates it with a validator from the supplier. The returned results are shared and must not be modified.
+     * @param configuration every setting the validator looks at, secrets included, it is only kept as a hash
+     */
+    public ValidationResults validate(final String configuration, final Supplier<AbstractValidator> validatorSupplier) {
+        final String contentHash = DigestUtils.sha256Hex(configuration);
+        synchronized (entries) {
+            final ValidationResults cachedResults = entries.get(contentHash);
+            if (cachedResults != null) {
+                hitCount.increment();
+                return cachedResults;
+            }
+        }
+
+        // validate outside the lock, a concurrent validation of the same configuration only repeats the work
+        missCount.increment();
+        final ValidationResults results = validatorSupplier.get().assertValid();
+        synchronized (entries) {
+            entries.put(contentHash, results);
+            final Iterator<String> leastRecentlyUsed = entries.keySet().iterator();
+            while (entries.size() > maxEntries && leastRecentlyUsed.hasNext()) {
+                leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+            }
+        }
+        return results;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.synopsys.integration.blackduck
 
 import com.synopsys.integration.blackduck.rest.ApiTokenRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.BearerTokenCache
 import com.synopsys.integration.log.LogLevel
 import com.synopsys.integration.log.PrintStreamIntLogger
 import com.synopsys.integration.rest.HttpMethod
@@ -16,6 +17,12 @@ import org.junit.After
 import org.junit.Before
 import org.junit.Test
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
 class ApiTokenRestConnectionTest {
     public static final int CONNECTION_TIMEOUT = 213
 
@@ -104,4 +111,114 @@ class ApiTokenRestConnectionTest {
             assert 404 == e.httpStatusCode
         }
     }
+
+    @Test
+    public void testBearerTokenReusedAcrossConnections() {
+        AtomicInteger authenticationCount = new AtomicInteger()
+        final Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('api/tokens/authenticate')) {
+                    authenticationCount.incrementAndGet()
+                    return new MockResponse()
+                            .addHeader("X-CSRF-TOKEN", "csrf")
+                            .setBody("{bearerToken: \"token\", expiresInMilliseconds: 7200000.0}").setResponseCode(200)
+                }
+                assert 'Bearer token' == request.getHeader('Authorization')
+                assert 'csrf' == request.getHeader('X-CSRF-TOKEN')
+                new MockResponse().setResponseCode(200)
+            }
+        };
+        server.setDispatcher(dispatcher);
+
+        BearerTokenCache bearerTokenCache = new BearerTokenCache()
+        2.times {
+            ApiTokenRestConnectionBuilder builder = new ApiTokenRestConnectionBuilder();
+            builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+            builder.baseUrl = server.url("/")
+            builder.timeout = CONNECTION_TIMEOUT
+            builder.apiToken = "ApiToken"
+            builder.bearerTokenCache = bearerTokenCache
+            RestConnection restConnection = builder.build()
+            RequestBuilder requestBuilder = restConnection.createRequestBuilder(HttpMethod.GET);
+            restConnection.executeRequest(requestBuilder.build()).withCloseable { assert 200 == it.getStatusCode() }
+        }
+
+        assert 1 == authenticationCount.get()
+        assert 1 == bearerTokenCache.hitCount
+        assert 1 == bearerTokenCache.missCount
+    }
+
+    @Test
+    public void testBearerTokenRefreshedBeforeExpiration() {
+        AtomicInteger authenticationCount = new AtomicInteger()
+        final Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int count = authenticationCount.incrementAndGet()
+                new MockResponse()
+                        .addHeader("X-CSRF-TOKEN", "csrf${count}")
+                        .setBody("{bearerToken: \"token${count}\", expiresInMilliseconds: 2000}").setResponseCode(200)
+            }
+        };
+        server.setDispatcher(dispatcher);
+
+        ApiTokenRestConnectionBuilder builder = new ApiTokenRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = CONNECTION_TIMEOUT
+        builder.apiToken = "ApiToken"
+        builder.bearerTokenCache = null
+        RestConnection restConnection = builder.build()
+        restConnection.connect()
+        assert 'Bearer token1' == restConnection.commonRequestHeaders['Authorization']
+
+        long deadline = System.currentTimeMillis() + 5000
+        while (authenticationCount.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+        Thread.sleep(100)
+        assert 'Bearer token2' == restConnection.commonRequestHeaders['Authorization']
+        assert 'csrf2' == restConnection.commonRequestHeaders['X-CSRF-TOKEN']
+        restConnection.close()
+    }
+
+    @Test
+    public void testConcurrentUnauthorizedRequestsReauthenticateOnce() {
+        AtomicInteger authenticationCount = new AtomicInteger()
+        final Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('api/tokens/authenticate')) {
+                    int count = authenticationCount.incrementAndGet()
+                    return new MockResponse().setBody("{bearerToken: \"token${count}\"}").setResponseCode(200)
+                }
+                if ('Bearer token1' == request.getHeader('Authorization')) {
+                    return new MockResponse().setResponseCode(401)
+                }
+                new MockResponse().setResponseCode(200)
+            }
+        };
+        server.setDispatcher(dispatcher);
+
+        ApiTokenRestConnectionBuilder builder = new ApiTokenRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = CONNECTION_TIMEOUT
+        builder.apiToken = "ApiToken"
+        builder.bearerTokenCache = null
+        RestConnection restConnection = builder.build()
+        restConnection.connect()
+
+        ExecutorService executorService = Executors.newFixedThreadPool(16)
+        List<Future<Integer>> statusCodes = (1..16).collect {
+            executorService.submit({
+                restConnection.executeRequest(restConnection.createRequestBuilder(HttpMethod.GET).build()).withCloseable { it.getStatusCode() }
+            } as Callable<Integer>)
+        }
+        statusCodes.each { assert 200 == it.get() }
+        executorService.shutdown()
+
+        assert 2 == authenticationCount.get()
+    }
 }
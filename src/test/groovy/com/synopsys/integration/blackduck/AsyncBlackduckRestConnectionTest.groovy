@@ -0,0 +1,113 @@
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.ApiTokenRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.AsyncBlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import com.synopsys.integration.rest.request.Response
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+
+class AsyncBlackduckRestConnectionTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger authenticationCount = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('api/tokens/authenticate')) {
+                    int count = authenticationCount.incrementAndGet()
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf").setBody("{bearerToken: \"token${count}\"}").setResponseCode(200)
+                }
+                if (request.path.endsWith('missing')) {
+                    return new MockResponse().setBody("not here").setResponseCode(404)
+                }
+                if ('Bearer token1' == request.getHeader('Authorization') && request.path.endsWith('expired')) {
+                    return new MockResponse().setResponseCode(401)
+                }
+                new MockResponse().setBody(request.path).setResponseCode(200)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private AsyncBlackduckRestConnection getAsyncConnection() {
+        ApiTokenRestConnectionBuilder builder = new ApiTokenRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 10
+        builder.apiToken = "ApiToken"
+        builder.bearerTokenCache = null
+        builder.asyncIoThreadCount = 2
+        builder.buildAsync()
+    }
+
+    @Test
+    public void testManyRequestsInFlight() {
+        getAsyncConnection().withCloseable { AsyncBlackduckRestConnection connection ->
+            List<CompletableFuture<Response>> responses = (1..50).collect {
+                connection.executeRequest(new Request.Builder(server.url("/item/${it}").toString()).build())
+            }
+            responses.eachWithIndex { CompletableFuture<Response> response, int i ->
+                response.get().withCloseable { assert "/item/${i + 1}" == it.getContentString() }
+            }
+        }
+        assert 1 == authenticationCount.get()
+    }
+
+    @Test
+    public void testRejectedRequestIsReplayed() {
+        getAsyncConnection().withCloseable { AsyncBlackduckRestConnection connection ->
+            connection.executeRequest(new Request.Builder(server.url("/expired").toString()).build()).get().withCloseable {
+                assert 200 == it.getStatusCode()
+            }
+        }
+        assert 2 == authenticationCount.get()
+    }
+
+    @Test
+    public void testFailureCompletesExceptionally() {
+        getAsyncConnection().withCloseable { AsyncBlackduckRestConnection connection ->
+            try {
+                connection.executeRequest(new Request.Builder(server.url("/missing").toString()).build()).get()
+                fail('Should have thrown exception')
+            } catch (ExecutionException e) {
+                assert e.cause instanceof IntegrationRestException
+                assert 404 == e.cause.httpStatusCode
+                assert 'not here' == e.cause.httpResponseContent
+            }
+        }
+    }
+
+    @Test
+    public void testWrappedConnectionIsLeftOpen() {
+        AsyncBlackduckRestConnection owning = getAsyncConnection()
+        BlackduckRestConnection restConnection = owning.restConnection
+        new AsyncBlackduckRestConnection(restConnection, 1).withCloseable { AsyncBlackduckRestConnection connection ->
+            connection.executeRequest(new Request.Builder(server.url("/item/1").toString()).build()).get().close()
+        }
+
+        restConnection.executeRequest(new Request.Builder(server.url("/item/2").toString()).build()).withCloseable { assert '/item/2' == it.contentString }
+        owning.close()
+        assert 0 == restConnection.poolStats.available
+    }
+}
@@ -0,0 +1,49 @@
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BearerToken
+import com.synopsys.integration.blackduck.rest.BearerTokenCache
+import org.junit.Test
+
+class BearerTokenCacheTest {
+    private static final URL BASE_URL = new URL("https://www.google.com/")
+
+    @Test
+    public void testCacheHitAndMiss() {
+        BearerTokenCache cache = new BearerTokenCache()
+        assert !cache.get(BASE_URL, "apiToken").isPresent()
+
+        BearerToken bearerToken = new BearerToken("bearer", "csrf", null, System.currentTimeMillis() + 3600000)
+        cache.put(BASE_URL, "apiToken", bearerToken)
+        assert bearerToken.is(cache.get(BASE_URL, "apiToken").get())
+        assert !cache.get(BASE_URL, "otherApiToken").isPresent()
+        assert !cache.get(new URL("https://www.github.com/"), "apiToken").isPresent()
+
+        assert 1 == cache.hitCount
+        assert 3 == cache.missCount
+    }
+
+    @Test
+    public void testExpiringTokensAreNotReturned() {
+        BearerTokenCache cache = new BearerTokenCache(60000)
+        cache.put(BASE_URL, "apiToken", new BearerToken("bearer", "csrf", null, System.currentTimeMillis() + 30000))
+        assert !cache.get(BASE_URL, "apiToken").isPresent()
+        assert 0 == cache.size()
+
+        cache.put(BASE_URL, "apiToken", new BearerToken("bearer", "csrf", null, BearerToken.UNKNOWN_EXPIRATION))
+        assert 0 == cache.size()
+    }
+
+    @Test
+    public void testInvalidateOnlyRemovesTheGivenToken() {
+        BearerTokenCache cache = new BearerTokenCache()
+        BearerToken oldToken = new BearerToken("old", "csrf", null, System.currentTimeMillis() + 3600000)
+        BearerToken newToken = new BearerToken("new", "csrf", null, System.currentTimeMillis() + 3600000)
+        cache.put(BASE_URL, "apiToken", newToken)
+
+        cache.invalidate(BASE_URL, "apiToken", oldToken)
+        assert newToken.is(cache.get(BASE_URL, "apiToken").get())
+
+        cache.invalidate(BASE_URL, "apiToken", newToken)
+        assert !cache.get(BASE_URL, "apiToken").isPresent()
+    }
+}
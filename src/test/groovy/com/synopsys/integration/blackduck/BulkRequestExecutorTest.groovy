@@ -0,0 +1,112 @@
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BulkRequestExecutor
+import com.synopsys.integration.blackduck.rest.BulkRequestResult
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class BulkRequestExecutorTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger inFlight = new AtomicInteger()
+    private final AtomicInteger maxInFlight = new AtomicInteger()
+    private final AtomicInteger loginCount = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    loginCount.incrementAndGet()
+                    return new MockResponse().setResponseCode(204)
+                }
+                int current = inFlight.incrementAndGet()
+                maxInFlight.accumulateAndGet(current, { a, b -> Math.max(a, b) })
+                Thread.sleep(20)
+                inFlight.decrementAndGet()
+                if (request.path.endsWith('/7')) {
+                    return new MockResponse().setResponseCode(404)
+                }
+                new MockResponse().setBody(request.path).setResponseCode(200)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 10
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.build()
+    }
+
+    private List<Request> getRequests() {
+        (1..20).collect { new Request.Builder(server.url("/item/${it}").toString()).build() }
+    }
+
+    @Test
+    public void testResultsInRequestOrder() {
+        List<BulkRequestResult<String>> results = getRestConnection().executeRequests(getRequests(), { it.getContentString() }, 4)
+
+        assert 20 == results.size()
+        results.eachWithIndex { BulkRequestResult<String> result, int i ->
+            assert i == result.index
+            if (i == 6) {
+                assert !result.success
+                assert 404 == ((IntegrationRestException) result.exception).httpStatusCode
+            } else {
+                assert result.success
+                assert "/item/${i + 1}" == result.result
+            }
+        }
+        assert maxInFlight.get() <= 4
+        assert 1 == loginCount.get()
+    }
+
+    @Test
+    public void testConcurrentFirstRequestsConnectOnce() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        ExecutorService executorService = Executors.newFixedThreadPool(6)
+        List<Integer> statusCodes = executorService.invokeAll(getRequests().take(6).collect { request ->
+            { -> restConnection.executeRequest(request).withCloseable { it.statusCode } } as Callable<Integer>
+        })*.get()
+        executorService.shutdown()
+
+        assert statusCodes.every { it == 200 }
+        assert 1 == loginCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testResultsAsCompleted() {
+        List<Integer> completedIndexes = []
+        new BulkRequestExecutor(getRestConnection(), 3).executeRequests(getRequests(), { it.getStatusCode() }, { completedIndexes.add(it.index) })
+
+        assert (0..19) as List == completedIndexes.sort()
+        assert maxInFlight.get() <= 3
+    }
+}
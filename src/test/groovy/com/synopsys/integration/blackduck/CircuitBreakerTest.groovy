@@ -0,0 +1,197 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.AsyncBlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CircuitBreaker
+import com.synopsys.integration.blackduck.rest.CircuitBreakerOpenException
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RestConnectionMetricsListener
+import com.synopsys.integration.exception.IntegrationException
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class CircuitBreakerTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger apiRequestCount = new AtomicInteger()
+    private volatile int apiStatusCode = 503
+    private final List<String> transitions = Collections.synchronizedList([])
+    private final RestConnectionMetricsListener metricsListener = new RestConnectionMetricsListener() {
+        @Override
+        void circuitBreakerStateChanged(String name, CircuitBreaker.State previousState, CircuitBreaker.State newState) {
+            transitions.add("${previousState}->${newState}".toString())
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                apiRequestCount.incrementAndGet()
+                new MockResponse().setResponseCode(apiStatusCode).setBody('body')
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testStateTransitions() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker('hub', 2, 50)
+        circuitBreaker.acquirePermission(metricsListener)
+        circuitBreaker.recordFailure(metricsListener)
+        circuitBreaker.acquirePermission(metricsListener)
+        circuitBreaker.recordSuccess(metricsListener)
+        assert 0 == circuitBreaker.consecutiveFailures
+
+        2.times {
+            circuitBreaker.acquirePermission(metricsListener)
+            circuitBreaker.recordFailure(metricsListener)
+        }
+        assert CircuitBreaker.State.OPEN == circuitBreaker.state
+        assertRejected(circuitBreaker)
+
+        Thread.sleep(60)
+        circuitBreaker.acquirePermission(metricsListener)
+        assert CircuitBreaker.State.HALF_OPEN == circuitBreaker.state
+        // only a single probe is let through
+        assertRejected(circuitBreaker)
+        circuitBreaker.recordFailure(metricsListener)
+        assert CircuitBreaker.State.OPEN == circuitBreaker.state
+        assertRejected(circuitBreaker)
+
+        Thread.sleep(60)
+        circuitBreaker.acquirePermission(metricsListener)
+        circuitBreaker.recordSuccess(metricsListener)
+        assert CircuitBreaker.State.CLOSED == circuitBreaker.state
+
+        assert ['CLOSED->OPEN', 'OPEN->HALF_OPEN', 'HALF_OPEN->OPEN', 'OPEN->HALF_OPEN', 'HALF_OPEN->CLOSED'] == transitions
+        assert 2 == circuitBreaker.getTransitionCount(CircuitBreaker.State.OPEN)
+        assert 1 == circuitBreaker.getTransitionCount(CircuitBreaker.State.CLOSED)
+        assert 3 == circuitBreaker.rejectedCount
+    }
+
+    private void assertRejected(CircuitBreaker circuitBreaker) {
+        try {
+            circuitBreaker.acquirePermission(metricsListener)
+            assert false
+        } catch (CircuitBreakerOpenException e) {
+            assert e.message.contains('hub')
+        }
+    }
+
+    @Test
+    public void testConnectionFailsFastWhileTheHubIsDown() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.circuitBreakerFailureThreshold = 3
+        builder.circuitBreakerOpenMillis = 200
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.metricsListener = metricsListener
+        Request request = new Request.Builder(server.url('/api/projects').toString()).build()
+
+        3.times {
+            try {
+                restConnection.executeRequest(request)
+                assert false
+            } catch (IntegrationRestException e) {
+                assert 503 == e.httpStatusCode
+            }
+        }
+        try {
+            restConnection.executeRequest(request)
+            assert false
+        } catch (IntegrationException e) {
+            assert e.cause instanceof CircuitBreakerOpenException
+        }
+        assert 3 == apiRequestCount.get()
+        assert CircuitBreaker.State.OPEN == restConnection.circuitBreaker.state
+
+        apiStatusCode = 200
+        Thread.sleep(250)
+        restConnection.executeRequest(request).withCloseable { assert 'body' == it.contentString }
+        assert CircuitBreaker.State.CLOSED == restConnection.circuitBreaker.state
+        assert ['CLOSED->OPEN', 'OPEN->HALF_OPEN', 'HALF_OPEN->CLOSED'] == transitions
+        restConnection.close()
+    }
+
+    @Test
+    public void testAsyncRequestsShareTheBreaker() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.circuitBreakerFailureThreshold = 2
+        builder.circuitBreakerOpenMillis = 60000
+        AsyncBlackduckRestConnection asyncConnection = new AsyncBlackduckRestConnection(builder.build(), 1)
+        Request request = new Request.Builder(server.url('/api/projects').toString()).build()
+
+        2.times {
+            try {
+                asyncConnection.executeRequest(request).get(10, TimeUnit.SECONDS)
+                assert false
+            } catch (ExecutionException e) {
+                assert 503 == ((IntegrationRestException) e.cause).httpStatusCode
+            }
+        }
+        assert CircuitBreaker.State.OPEN == asyncConnection.restConnection.circuitBreaker.state
+        try {
+            asyncConnection.executeRequest(request).get(10, TimeUnit.SECONDS)
+            assert false
+        } catch (ExecutionException e) {
+            assert e.cause.cause instanceof CircuitBreakerOpenException
+        }
+        assert 2 == apiRequestCount.get()
+        asyncConnection.close()
+        asyncConnection.restConnection.close()
+    }
+
+}
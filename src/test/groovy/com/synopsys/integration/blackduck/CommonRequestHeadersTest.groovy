@@ -0,0 +1,123 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.request.Request
+import org.apache.http.client.methods.HttpUriRequest
+import org.junit.Test
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+
+class CommonRequestHeadersTest {
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = 'http://www.google.com/'
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.commonRequestHeaders = ['X-Client': 'test']
+        builder.build()
+    }
+
+    @Test
+    public void testRequestsCarryTheCommonHeaders() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        assert 'test' == restConnection.commonRequestHeaders['X-Client']
+
+        restConnection.commonRequestHeaders.put('X-Other', 'other')
+        restConnection.addCommonRequestHeaders(['X-Third': 'third'])
+        HttpUriRequest request = restConnection.createHttpRequest(new Request.Builder('http://www.google.com/api').build())
+        assert 'test' == request.getFirstHeader('X-Client').value
+        assert 'other' == request.getFirstHeader('X-Other').value
+        assert 'third' == request.getFirstHeader('X-Third').value
+
+        // the additional headers take precedence over the common headers
+        HttpUriRequest overridden = restConnection.createRequestBuilder(HttpMethod.POST, ['X-Client': 'override']).build()
+        assert 1 == overridden.getHeaders('X-Client').length
+        assert 'override' == overridden.getFirstHeader('X-Client').value
+        assert 'other' == overridden.getFirstHeader('X-Other').value
+
+        restConnection.commonRequestHeaders.remove('X-Other')
+        assert !restConnection.createHttpRequest(new Request.Builder('http://www.google.com/api').build()).containsHeader('X-Other')
+    }
+
+    @Test
+    public void testViewsChangeTheHeaders() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        Map<String, String> headers = restConnection.commonRequestHeaders
+        headers.putAll(['X-One': 'one', 'X-Two': 'two', 'X-Three': 'three'])
+
+        headers.keySet().remove('X-One')
+        headers.values().remove('two')
+        headers.entrySet().removeIf { it.key == 'X-Three' }
+        headers.entrySet().find { it.key == 'X-Client' }.value = 'changed'
+
+        assert ['X-Client': 'changed'] == headers
+        HttpUriRequest request = restConnection.createHttpRequest(new Request.Builder('http://www.google.com/api').build())
+        assert 'changed' == request.getFirstHeader('X-Client').value
+        assert !request.containsHeader('X-One')
+        assert !request.containsHeader('X-Two')
+        assert !request.containsHeader('X-Three')
+    }
+
+    @Test
+    public void testAddedHeadersAreNeverSeenHalfUpdated() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        restConnection.addCommonRequestHeaders(['Authorization': 'Bearer 0', 'X-CSRF-TOKEN': 'csrf0'])
+
+        AtomicBoolean replacing = new AtomicBoolean(true)
+        ExecutorService executorService = Executors.newFixedThreadPool(5)
+        executorService.submit({
+            (1..20000).each { restConnection.addCommonRequestHeaders(['Authorization': "Bearer ${it}".toString(), 'X-CSRF-TOKEN': "csrf${it}".toString()]) }
+            replacing.set(false)
+        } as Runnable)
+
+        List<Integer> tornRequests = executorService.invokeAll((1..4).collect {
+            {
+                ->
+                int torn = 0
+                while (replacing.get()) {
+                    HttpUriRequest request = it % 2 ? restConnection.createHttpRequest(new Request.Builder('http://www.google.com/api').build()) : restConnection.createRequestBuilder(HttpMethod.GET, null).build()
+                    String token = request.getFirstHeader('Authorization').value - 'Bearer '
+                    if ("csrf${token}".toString() != request.getFirstHeader('X-CSRF-TOKEN').value) {
+                        torn++
+                    }
+                }
+                torn
+            } as Callable<Integer>
+        })*.get()
+        executorService.shutdown()
+
+        assert [0, 0, 0, 0] == tornRequests
+        assert 'Bearer 20000' == restConnection.commonRequestHeaders['Authorization']
+    }
+
+}
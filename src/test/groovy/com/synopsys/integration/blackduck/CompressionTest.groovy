@@ -0,0 +1,175 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CompressionStatistics
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.HttpTransportType
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.body.MapBodyContent
+import com.synopsys.integration.rest.body.StringBodyContent
+import com.synopsys.integration.rest.request.Request
+import okhttp3.Protocol
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.junit.After
+import org.junit.Test
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+class CompressionTest {
+    private static final String BODY = '{"items":[' + (1..500).collect { "{\"name\":\"component${it}\",\"version\":\"1.0\"}" }.join(',') + ']}'
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<RecordedRequest> recordedRequests = Collections.synchronizedList([])
+    private final AtomicInteger formRequestCount = new AtomicInteger()
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection(HttpTransportType httpTransportType, long requestCompressionThresholdBytes) {
+        if (httpTransportType == HttpTransportType.HTTP_2_PRIOR_KNOWLEDGE) {
+            server.setProtocols([Protocol.H2_PRIOR_KNOWLEDGE])
+        }
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                recordedRequests.add(request)
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                if (request.path.endsWith('/api/forms') && formRequestCount.getAndIncrement() == 0) {
+                    return new MockResponse().setResponseCode(401)
+                }
+                if ('POST' == request.method) {
+                    String body = 'gzip' == request.getHeader('Content-Encoding') ? new GZIPInputStream(request.body.inputStream()).getText('UTF-8') : request.body.readUtf8()
+                    return new MockResponse().setBody(body)
+                }
+                if (request.getHeader('Accept-Encoding')?.contains('gzip')) {
+                    return new MockResponse().addHeader('Content-Encoding', 'gzip').setBody(gzip(BODY))
+                }
+                new MockResponse().setBody(BODY)
+            }
+        });
+        server.start()
+
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.httpTransportType = httpTransportType
+        builder.requestCompressionThresholdBytes = requestCompressionThresholdBytes
+        builder.build()
+    }
+
+    private static Buffer gzip(String content) {
+        Buffer buffer = new Buffer()
+        new GZIPOutputStream(buffer.outputStream()).withCloseable { it.write(content.getBytes('UTF-8')) }
+        buffer
+    }
+
+    private void assertCompressedResponse(BlackduckRestConnection restConnection) {
+        restConnection.executeRequest(new Request.Builder(server.url('/api/components').toString()).build()).withCloseable {
+            assert BODY == it.contentString
+        }
+        assert recordedRequests.last().getHeader('Accept-Encoding').contains('gzip')
+
+        CompressionStatistics statistics = restConnection.compressionStatistics
+        assert BODY.length() == statistics.responseBytesDecompressed
+        assert gzip(BODY).size() == statistics.responseBytesReceived
+        assert statistics.responseBytesSaved > BODY.length() / 2
+        restConnection.close()
+    }
+
+    @Test
+    public void testResponseIsDecompressed() {
+        assertCompressedResponse(getRestConnection(HttpTransportType.HTTP_1_1, 0))
+    }
+
+    @Test
+    public void testResponseIsDecompressedOverHttp2() {
+        assertCompressedResponse(getRestConnection(HttpTransportType.HTTP_2_PRIOR_KNOWLEDGE, 0))
+    }
+
+    @Test
+    public void testReconnectingAddsTheCountingInterceptorsOnce() {
+        BlackduckRestConnection restConnection = getRestConnection(HttpTransportType.HTTP_1_1, 0)
+        restConnection.connect()
+        restConnection.connect()
+        // the client builder outlives the clients it builds
+        assert 1 == restConnection.clientBuilder.responseFirst.size()
+        assert 1 == restConnection.clientBuilder.responseLast.size()
+        assertCompressedResponse(restConnection)
+    }
+
+    @Test
+    public void testLargeRequestBodyIsCompressed() {
+        BlackduckRestConnection restConnection = getRestConnection(HttpTransportType.HTTP_1_1, 1024)
+        Request largeRequest = new Request.Builder(server.url('/api/uploads').toString()).method(HttpMethod.POST).bodyContent(new StringBodyContent(BODY)).build()
+        restConnection.executeRequest(largeRequest).withCloseable { assert BODY == it.contentString }
+        assert 'gzip' == recordedRequests.last().getHeader('Content-Encoding')
+
+        Request smallRequest = new Request.Builder(server.url('/api/uploads').toString()).method(HttpMethod.POST).bodyContent(new StringBodyContent('{"name":"small"}')).build()
+        restConnection.executeRequest(smallRequest).withCloseable { assert '{"name":"small"}' == it.contentString }
+        assert null == recordedRequests.last().getHeader('Content-Encoding')
+
+        CompressionStatistics statistics = restConnection.compressionStatistics
+        assert BODY.length() == statistics.requestBytesUncompressed
+        assert statistics.requestBytesSent > 0
+        assert statistics.requestBytesSaved > BODY.length() / 2
+        restConnection.close()
+    }
+
+    @Test
+    public void testRequestBodyIsNotCompressedByDefault() {
+        BlackduckRestConnection restConnection = getRestConnection(HttpTransportType.HTTP_1_1, 0)
+        Request request = new Request.Builder(server.url('/api/uploads').toString()).method(HttpMethod.POST).bodyContent(new StringBodyContent(BODY)).build()
+        restConnection.executeRequest(request).withCloseable { assert BODY == it.contentString }
+        assert null == recordedRequests.last().getHeader('Content-Encoding')
+        assert 0 == restConnection.compressionStatistics.requestBytesSent
+        restConnection.close()
+    }
+
+    @Test
+    public void testCompressedFormIsReplayedAfterReauthentication() {
+        BlackduckRestConnection restConnection = getRestConnection(HttpTransportType.HTTP_1_1, 1)
+        Request formRequest = new Request.Builder(server.url('/api/forms').toString()).method(HttpMethod.POST).bodyContent(new MapBodyContent([name: 'component'])).build()
+        restConnection.executeRequest(formRequest).withCloseable { assert 'name=component' == it.contentString }
+        assert 2 == formRequestCount.get()
+        assert 'gzip' == recordedRequests.last().getHeader('Content-Encoding')
+        restConnection.close()
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BulkRequestResult
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.UncheckedIntegrationException
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+
+class ConnectionWarmUpTest {
+    private final MockWebServer server = new MockWebServer();
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode('WrongUser' == request.body.readUtf8().find(/j_username=(\w+)/) { it[1] } ? 401 : 204)
+                }
+                Thread.sleep(20)
+                new MockResponse().setBody(request.path)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private CredentialsRestConnectionBuilder createBuilder(String username) {
+        TestConnectionBuilders.createCredentialsBuilder(server.url("/"), username)
+    }
+
+    @Test
+    public void testConnectionsArePreOpened() {
+        CredentialsRestConnectionBuilder builder = createBuilder('TestUser')
+        builder.warmUpConnectionCount = 4
+        CompletableFuture<CredentialsRestConnection> futureConnection = builder.buildAndConnectAsync()
+        BlackduckRestConnection restConnection = futureConnection.get()
+
+        assert 4 == restConnection.poolStats.available
+        List<Request> requests = (1..4).collect { new Request.Builder(server.url("/item/${it}").toString()).build() }
+        List<BulkRequestResult<String>> results = restConnection.executeRequests(requests, { it.getContentString() }, 4)
+        assert results.every { it.success }
+        assert 4 == restConnection.poolStats.available
+        restConnection.close()
+    }
+
+    @Test
+    public void testWarmUpIsLimitedByThePool() {
+        CredentialsRestConnectionBuilder builder = createBuilder('TestUser')
+        builder.maxConnectionsPerRoute = 2
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.warmUp(10)
+
+        assert 2 == restConnection.poolStats.available
+        restConnection.close()
+    }
+
+    @Test
+    public void testFailedAuthenticationCompletesExceptionally() {
+        try {
+            createBuilder('WrongUser').buildAndConnectAsync().get()
+            fail('Should have thrown exception')
+        } catch (ExecutionException e) {
+            assert e.cause instanceof UncheckedIntegrationException
+            assert 401 == ((IntegrationRestException) e.cause.cause).httpStatusCode
+        }
+    }
+
+    @Test
+    public void testConnectionsShareTheSslContext() {
+        CredentialsRestConnectionBuilder trustingBuilder = createBuilder('TestUser')
+        trustingBuilder.alwaysTrustServerCertificate = true
+        BlackduckRestConnection first = trustingBuilder.build()
+        BlackduckRestConnection second = trustingBuilder.build()
+        BlackduckRestConnection verifying = createBuilder('TestUser').build()
+
+        assert first.sslContext.is(second.sslContext)
+        assert !first.sslContext.is(verifying.sslContext)
+        assert verifying.sslContext.is(createBuilder('OtherUser').build().sslContext)
+    }
+
+}
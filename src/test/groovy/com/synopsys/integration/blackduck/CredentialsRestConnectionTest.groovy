@@ -22,6 +22,7 @@
  * under the License.*/
 package com.synopsys.integration.blackduck
 
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
 import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
 import com.synopsys.integration.log.LogLevel
 import com.synopsys.integration.log.PrintStreamIntLogger
@@ -34,10 +35,13 @@ import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
 import okhttp3.mockwebserver.RecordedRequest
 import org.apache.http.client.methods.RequestBuilder
+import org.apache.http.pool.PoolStats
 import org.junit.After
 import org.junit.Before
 import org.junit.Test
 
+import java.util.concurrent.atomic.AtomicInteger
+
 class CredentialsRestConnectionTest {
     public static final int CONNECTION_TIMEOUT = 213
 
@@ -123,4 +127,116 @@ class CredentialsRestConnectionTest {
             assert 404 == e.httpStatusCode
         }
     }
+
+    @Test
+    public void testExpiredSessionReauthenticatesAndReplays() {
+        AtomicInteger loginCount = new AtomicInteger()
+        final Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    int count = loginCount.incrementAndGet()
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf${count}").setResponseCode(204)
+                }
+                if ('csrf1' == request.getHeader('X-CSRF-TOKEN')) {
+                    return new MockResponse().setResponseCode(401)
+                }
+                getSuccessResponse()
+            }
+        };
+        server.setDispatcher(dispatcher);
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = CONNECTION_TIMEOUT
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        RestConnection restConnection = builder.build()
+        restConnection.connect()
+
+        RequestBuilder requestBuilder = restConnection.createRequestBuilder(HttpMethod.GET);
+        restConnection.executeRequest(requestBuilder.build()).withCloseable { assert 200 == it.getStatusCode() }
+
+        assert 2 == loginCount.get()
+        assert 4 == server.requestCount
+    }
+
+    @Test
+    public void testOnlyCsrfRejectionsReauthenticate() {
+        AtomicInteger loginCount = new AtomicInteger()
+        final Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    int count = loginCount.incrementAndGet()
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf${count}").setResponseCode(204)
+                }
+                if (request.path.endsWith('forbidden')) {
+                    return new MockResponse().setBody('{"errorMessage":"User does not have permission"}').setResponseCode(403)
+                }
+                if ('csrf1' == request.getHeader('X-CSRF-TOKEN')) {
+                    return new MockResponse().setBody('{"errorMessage":"Invalid CSRF Token found on the request"}').setResponseCode(403)
+                }
+                getSuccessResponse()
+            }
+        };
+        server.setDispatcher(dispatcher);
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = CONNECTION_TIMEOUT
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        RestConnection restConnection = builder.build()
+        restConnection.connect()
+
+        restConnection.executeRequest(restConnection.createRequestBuilder(HttpMethod.GET).build()).withCloseable { assert 200 == it.getStatusCode() }
+        assert 2 == loginCount.get()
+
+        // a denied permission is not an authentication failure
+        try {
+            restConnection.executeRequest(restConnection.createRequestBuilder(HttpMethod.GET).setUri(server.url('/forbidden').uri()).build())
+            fail('Should have thrown exception')
+        } catch (IntegrationRestException e) {
+            assert 403 == e.httpStatusCode
+            assert e.httpResponseContent.contains('permission')
+        }
+        assert 2 == loginCount.get()
+    }
+
+    @Test
+    public void testConnectionPoolSettings() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                getSuccessResponse()
+            }
+        });
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = CONNECTION_TIMEOUT
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.maxTotalConnections = 7
+        builder.maxConnectionsPerRoute = 3
+        builder.idleConnectionEvictionSeconds = 10
+        BlackduckRestConnection restConnection = builder.build()
+        assert 3 == restConnection.maxConnectionsPerRoute
+        assert 10 == restConnection.idleConnectionEvictionSeconds
+        assert 0 == restConnection.poolStats.leased
+
+        RequestBuilder requestBuilder = restConnection.createRequestBuilder(HttpMethod.GET);
+        restConnection.executeRequest(requestBuilder.build()).withCloseable {
+            assert 1 == restConnection.poolStats.leased
+            assert 'Hello' == it.getContentString()
+        }
+
+        PoolStats poolStats = restConnection.poolStats
+        assert 7 == poolStats.max
+        assert 0 == poolStats.leased
+        assert 0 == poolStats.pending
+        assert 1 == poolStats.available
+        restConnection.close()
+    }
 }
@@ -0,0 +1,160 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.FileDownloader
+import com.synopsys.integration.blackduck.rest.RetryPolicy
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import okio.Buffer
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.atomic.AtomicInteger
+
+class FileDownloaderTest {
+    private static final byte[] REPORT = (0..<(3 * FileDownloader.TRANSFER_CHUNK_BYTES + 100)).collect { (byte) (it % 251) } as byte[]
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<RecordedRequest> downloadRequests = Collections.synchronizedList([])
+    private final AtomicInteger disconnectCount = new AtomicInteger()
+    private boolean rangeSupported = true
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                downloadRequests.add(request)
+                String range = request.getHeader('Range')
+                if (rangeSupported && range != null) {
+                    int start = Integer.parseInt(range.substring('bytes='.length(), range.length() - 1))
+                    if (start >= REPORT.length) {
+                        return new MockResponse().setResponseCode(416).addHeader('Content-Range', "bytes */${REPORT.length}")
+                    }
+                    return new MockResponse().setResponseCode(206)
+                            .addHeader('Content-Range', "bytes ${start}-${REPORT.length - 1}/${REPORT.length}")
+                            .setBody(new Buffer().write(REPORT, start, REPORT.length - start))
+                }
+                MockResponse response = new MockResponse().addHeader('ETag', '"report1"').setBody(new Buffer().write(REPORT))
+                if (disconnectCount.getAndDecrement() > 0) {
+                    response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY)
+                }
+                response
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.retryPolicy = new RetryPolicy(3, 0, 0)
+        builder.build()
+    }
+
+    private Request getReportRequest() {
+        new Request.Builder(server.url('/api/reports/1/contents').toString()).build()
+    }
+
+    @Test
+    public void testDownloadReportsProgress() {
+        Path destination = temporaryFolder.root.toPath().resolve('report.zip')
+        List<Long> progress = []
+        long size = getRestConnection().download(getReportRequest(), destination, { written, total ->
+            assert REPORT.length == total
+            progress.add(written)
+        })
+
+        assert REPORT.length == size
+        assert REPORT == Files.readAllBytes(destination)
+        assert progress.size() >= 4
+        assert progress == progress.sort(false)
+        assert REPORT.length == progress.last()
+        assert 'identity' == downloadRequests[0].getHeader('Accept-Encoding')
+        assert null == downloadRequests[0].getHeader('Range')
+    }
+
+    @Test
+    public void testExistingFileIsReplaced() {
+        Path destination = temporaryFolder.root.toPath().resolve('report.zip')
+        Files.write(destination, new byte[REPORT.length + 10])
+
+        assert REPORT.length == getRestConnection().download(getReportRequest(), destination)
+        assert REPORT == Files.readAllBytes(destination)
+        assert 1 == downloadRequests.size()
+        assert null == downloadRequests[0].getHeader('Range')
+    }
+
+    @Test
+    public void testIgnoredRangeOverwritesTheFile() {
+        rangeSupported = false
+        disconnectCount.set(1)
+        Path destination = temporaryFolder.root.toPath().resolve('report.zip')
+
+        assert REPORT.length == getRestConnection().download(getReportRequest(), destination)
+        assert REPORT == Files.readAllBytes(destination)
+        assert 2 == downloadRequests.size()
+    }
+
+    @Test
+    public void testBrokenTransferIsResumed() {
+        disconnectCount.set(1)
+        Path destination = temporaryFolder.root.toPath().resolve('report.zip')
+
+        assert REPORT.length == getRestConnection().download(getReportRequest(), destination)
+        assert REPORT == Files.readAllBytes(destination)
+        assert 2 == downloadRequests.size()
+        assert downloadRequests[1].getHeader('Range').startsWith('bytes=')
+        assert '"report1"' == downloadRequests[1].getHeader('If-Range')
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.JsonFieldReader
+import org.junit.Test
+
+import java.nio.charset.StandardCharsets
+
+class JsonFieldReaderTest {
+    private Map<String, String> read(String json, String... fieldNames) {
+        JsonFieldReader.readFields(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), fieldNames)
+    }
+
+    @Test
+    public void testReadsRequestedPrimitiveFields() {
+        Map<String, String> fields = read('{"other":{"bearerToken":"nested"},"bearerToken":"token","list":[1,2],"expiresInMilliseconds":7199998,"enabled":true}', 'bearerToken', 'expiresInMilliseconds', 'enabled')
+
+        assert 'token' == fields.bearerToken
+        assert '7199998' == fields.expiresInMilliseconds
+        assert 'true' == fields.enabled
+        assert 3 == fields.size()
+    }
+
+    @Test
+    public void testMissingAndNonPrimitiveFieldsAreLeftOut() {
+        Map<String, String> fields = read('{"bearerToken":null,"expiresInMilliseconds":{"value":1}}', 'bearerToken', 'expiresInMilliseconds')
+
+        assert fields.isEmpty()
+    }
+
+    @Test
+    public void testStopsOnceAllFieldsAreFound() {
+        Map<String, String> fields = read('{"bearerToken":"token", this is never read', 'bearerToken')
+
+        assert 'token' == fields.bearerToken
+    }
+
+}
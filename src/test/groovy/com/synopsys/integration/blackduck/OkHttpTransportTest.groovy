@@ -0,0 +1,206 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.ApiTokenRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BulkRequestResult
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.HttpTransportType
+import com.synopsys.integration.blackduck.rest.OkHttpTransport
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.body.StringBodyContent
+import com.synopsys.integration.rest.request.Request
+import com.synopsys.integration.rest.request.Response
+import okhttp3.Protocol
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.apache.http.HttpVersion
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class OkHttpTransportTest {
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicInteger loginCount = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setProtocols([Protocol.H2_PRIOR_KNOWLEDGE])
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    int count = loginCount.incrementAndGet()
+                    assert 'j_username=TestUser&j_password=Password' == request.body.readUtf8()
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf${count}").addHeader('Set-Cookie', "JSESSIONID=session${count}; Path=/").setResponseCode(204)
+                }
+                if (request.path.endsWith('api/tokens/authenticate')) {
+                    assert 'token ApiToken' == request.getHeader('Authorization')
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf").setBody('{"bearerToken":"bearer"}')
+                }
+                if (request.getHeader('Authorization') == 'Bearer bearer') {
+                    return new MockResponse().setBody('token authenticated')
+                }
+                if (request.getHeader('Cookie') != 'JSESSIONID=session2' || request.getHeader('X-CSRF-TOKEN') != 'csrf2') {
+                    return new MockResponse().setResponseCode(401)
+                }
+                if (request.path.endsWith('large')) {
+                    // reading all of it takes about 50 seconds
+                    return new MockResponse().setBody('x' * 512000).throttleBody(1024, 100, TimeUnit.MILLISECONDS)
+                }
+                if ('POST' == request.method) {
+                    return new MockResponse().setBody(request.body.readUtf8()).setResponseCode(201)
+                }
+                Thread.sleep(50)
+                new MockResponse().setBody(request.path)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.httpTransportType = HttpTransportType.HTTP_2_PRIOR_KNOWLEDGE
+        builder.build()
+    }
+
+    @Test
+    public void testSessionAuthenticationOverHttp2() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        restConnection.connect()
+        assert restConnection.httpTransport instanceof OkHttpTransport
+
+        // the first session is rejected, the connection logs in again and replays the request
+        Response response = restConnection.executeRequest(new Request.Builder(server.url('/api/projects').toString()).build())
+        assert OkHttpTransport.HTTP_2 == response.actualResponse.statusLine.protocolVersion
+        assert '/api/projects' == response.contentString
+        assert 2 == loginCount.get()
+
+        Request postRequest = new Request.Builder(server.url('/api/projects').toString()).method(HttpMethod.POST).bodyContent(new StringBodyContent('{"name":"project"}')).build()
+        restConnection.executeRequest(postRequest).withCloseable {
+            assert 201 == it.statusCode
+            assert '{"name":"project"}' == it.contentString
+        }
+        restConnection.close()
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneConnection() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        restConnection.connect()
+        restConnection.executeRequest(new Request.Builder(server.url('/api/projects').toString()).build()).close()
+
+        List<Request> requests = (1..16).collect { new Request.Builder(server.url("/item/${it}").toString()).build() }
+        long start = System.currentTimeMillis()
+        List<BulkRequestResult<String>> results = restConnection.executeRequests(requests, { it.getContentString() }, 16)
+
+        assert results.every { it.success }
+        assert '/item/16' == results[15].result
+        assert System.currentTimeMillis() - start < 16 * 50
+        assert 1 == ((OkHttpTransport) restConnection.httpTransport).connectionCount
+        restConnection.close()
+    }
+
+    @Test
+    public void testApiTokenAuthenticationOverHttp2() {
+        ApiTokenRestConnectionBuilder builder = new ApiTokenRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.apiToken = 'ApiToken'
+        builder.bearerTokenCache = null
+        builder.httpTransportType = HttpTransportType.HTTP_2_PRIOR_KNOWLEDGE
+        BlackduckRestConnection restConnection = builder.build()
+
+        restConnection.executeRequest(new Request.Builder(server.url('/api/projects').toString()).build()).withCloseable {
+            assert 'token authenticated' == it.contentString
+        }
+        restConnection.close()
+    }
+
+    @Test
+    public void testPlainHttpFallsBackToHttp11() {
+        MockWebServer http11Server = new MockWebServer()
+        http11Server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                new MockResponse().setBody(request.path)
+            }
+        })
+        http11Server.start()
+
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = http11Server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.httpTransportType = HttpTransportType.HTTP_2
+        BlackduckRestConnection restConnection = builder.build()
+
+        restConnection.executeRequest(new Request.Builder(http11Server.url('/api/projects').toString()).build()).withCloseable {
+            assert HttpVersion.HTTP_1_1 == it.actualResponse.statusLine.protocolVersion
+            assert '/api/projects' == it.contentString
+        }
+        restConnection.close()
+        http11Server.shutdown()
+    }
+
+    @Test
+    public void testClosingAnUnreadResponseCancelsTheStream() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        restConnection.connect()
+        // log in again first, the first session is rejected
+        restConnection.executeRequest(new Request.Builder(server.url('/api/projects').toString()).build()).close()
+
+        Response response = restConnection.executeRequest(new Request.Builder(server.url('/api/large').toString()).build())
+        assert 'x' == new String([response.content.read()] as byte[], 'UTF-8')
+        long start = System.nanoTime()
+        response.close()
+        assert TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5
+
+        assert '/api/projects' == restConnection.executeRequest(new Request.Builder(server.url('/api/projects').toString()).build()).withCloseable { it.contentString }
+        assert 1 == restConnection.httpTransport.connectionCount
+        restConnection.close()
+    }
+
+}
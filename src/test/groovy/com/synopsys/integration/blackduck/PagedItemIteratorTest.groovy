@@ -0,0 +1,116 @@
+package com.synopsys.integration.blackduck
+
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.PagedItemIterator
+import com.synopsys.integration.blackduck.rest.UncheckedIntegrationException
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import okhttp3.HttpUrl
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.stream.Collectors
+
+class PagedItemIteratorTest {
+    private static final int TOTAL_COUNT = 250
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<String> requestedPages = Collections.synchronizedList([])
+    private final AtomicInteger pagesInFlight = new AtomicInteger()
+    private final AtomicInteger maxPagesInFlight = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                HttpUrl url = request.requestUrl
+                if (url.encodedPath() == '/broken') {
+                    return new MockResponse().setResponseCode(500)
+                }
+                int offset = url.queryParameter('offset') as int
+                int limit = url.queryParameter('limit') as int
+                requestedPages.add("${url.queryParameter('q')}:${offset}:${limit}".toString())
+                if (url.encodedPath() == '/slow') {
+                    maxPagesInFlight.accumulateAndGet(pagesInFlight.incrementAndGet(), { a, b -> Math.max(a, b) })
+                    Thread.sleep(50)
+                    pagesInFlight.decrementAndGet()
+                }
+                List<Map> items = (offset..<Math.min(offset + limit, TOTAL_COUNT)).collect { [name: "item${it}".toString(), _meta: [href: "http://hub/${it}".toString()]] }
+                new MockResponse().setBody(new Gson().toJson([totalCount: TOTAL_COUNT, items: items, appliedFilters: [], _meta: [allow: ['GET']]])).setResponseCode(200)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 10
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.build()
+    }
+
+    @Test
+    public void testIteratesAllPages() {
+        Request request = new Request.Builder(server.url("/api/projects").toString()).addQueryParameter('q', 'name:test').build()
+        PagedItemIterator<JsonObject> iterator = getRestConnection().getAllItems(request, new Gson(), JsonObject.class, 100)
+
+        List<String> names = iterator.collect { it.get('name').getAsString() }
+        assert (0..<TOTAL_COUNT).collect { "item${it}".toString() } == names
+        assert ['name:test:0:100', 'name:test:100:100', 'name:test:200:100'] == requestedPages
+    }
+
+    @Test
+    public void testStreamStopsEarly() {
+        Request request = new Request.Builder(server.url("/api/projects").toString()).build()
+        List<JsonObject> firstItems = getRestConnection().streamAllItems(request, JsonObject.class).limit(5).collect(Collectors.toList())
+
+        assert 5 == firstItems.size()
+        assert requestedPages.size() <= 2
+    }
+
+    @Test
+    public void testFailureIsThrownUnchecked() {
+        Request request = new Request.Builder(server.url("/broken").toString()).build()
+        try {
+            getRestConnection().getAllItems(request, JsonObject.class).hasNext()
+            fail('Should have thrown exception')
+        } catch (UncheckedIntegrationException e) {
+            assert 500 == ((IntegrationRestException) e.cause).httpStatusCode
+        }
+    }
+
+    @Test
+    public void testParallelPagesKeepOrder() {
+        Request request = new Request.Builder(server.url("/slow").toString()).build()
+        PagedItemIterator<JsonObject> iterator = getRestConnection().getAllItems(request, new Gson(), JsonObject.class, 10, 4)
+
+        List<String> names = iterator.collect { it.get('name').getAsString() }
+        assert (0..<TOTAL_COUNT).collect { "item${it}".toString() } == names
+        assert 25 == requestedPages.size()
+        assert maxPagesInFlight.get() <= 4
+        assert maxPagesInFlight.get() > 1
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RequestCoalescer
+import com.synopsys.integration.blackduck.rest.RequestTimeouts
+import com.synopsys.integration.blackduck.rest.RestConnectionMetricsListener
+import com.synopsys.integration.exception.IntegrationException
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.body.StringBodyContent
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class RequestCoalescerTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger versionRequestCount = new AtomicInteger()
+    private final CountDownLatch release = new CountDownLatch(1)
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                versionRequestCount.incrementAndGet()
+                release.await(10, TimeUnit.SECONDS)
+                if (request.path.endsWith('large')) {
+                    return new MockResponse().setChunkedBody("${request.method} ${request.path}", 4)
+                }
+                if (request.path.endsWith('missing')) {
+                    return new MockResponse().setResponseCode(404)
+                }
+                new MockResponse().setBody("${request.method} ${request.path} ${request.getHeader('Accept')}")
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection(boolean coalesceConcurrentRequests) {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.coalesceConcurrentRequests = coalesceConcurrentRequests
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.connect()
+        restConnection
+    }
+
+    private List<Future<String>> executeConcurrently(BlackduckRestConnection restConnection, List<Request> requests) {
+        ExecutorService executorService = Executors.newFixedThreadPool(requests.size())
+        List<Future<String>> results = requests.collect { request ->
+            executorService.submit({ restConnection.executeRequest(request).withCloseable { it.contentString } } as Callable<String>)
+        }
+        // wait until every request either reached the server or joined a call in flight
+        long deadline = System.currentTimeMillis() + 5000
+        while (versionRequestCount.get() + (restConnection.requestCoalescer?.waitingCount ?: 0) < requests.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        release.countDown()
+        executorService.shutdown()
+        results
+    }
+
+    @Test
+    public void testConcurrentGetsShareOneCall() {
+        AtomicInteger coalescedCount = new AtomicInteger()
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        restConnection.metricsListener = new RestConnectionMetricsListener() {
+            @Override
+            void requestCoalesced(String method, URI uri) {
+                coalescedCount.incrementAndGet()
+            }
+        }
+        String uri = server.url('/api/projects/1/versions/2').toString()
+        List<Future<String>> results = executeConcurrently(restConnection, (1..8).collect { new Request.Builder(uri).build() })
+
+        results.each { assert "GET /api/projects/1/versions/2 application/json" == it.get(10, TimeUnit.SECONDS) }
+        assert 1 == versionRequestCount.get()
+        assert 7 == restConnection.requestCoalescer.coalescedCount
+        assert 7 == coalescedCount.get()
+        assert 0 == restConnection.requestCoalescer.inFlightCount
+    }
+
+    @Test
+    public void testLargeResponsesAreNotShared() {
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        restConnection.requestCoalescer = new RequestCoalescer(8)
+        String uri = server.url('/api/large').toString()
+        List<Future<String>> results = executeConcurrently(restConnection, (1..4).collect { new Request.Builder(uri).build() })
+
+        assert results.every { it.get() == 'GET /api/large' }
+        // the first request streamed the body, the others sent their own
+        assert 4 == versionRequestCount.get()
+        assert 0 == restConnection.requestCoalescer.coalescedCount
+        assert 0 == restConnection.requestCoalescer.inFlightCount
+        restConnection.close()
+    }
+
+    @Test
+    public void testDifferentHeadersAreNotCoalesced() {
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        String uri = server.url('/api/components/1').toString()
+        List<Request> requests = [new Request.Builder(uri).build(), new Request.Builder(uri).mimeType('text/plain').build(), new Request.Builder(uri).build()]
+        List<Future<String>> results = executeConcurrently(restConnection, requests)
+
+        assert "GET /api/components/1 application/json" == results[0].get(10, TimeUnit.SECONDS)
+        assert "GET /api/components/1 text/plain" == results[1].get(10, TimeUnit.SECONDS)
+        assert 2 == versionRequestCount.get()
+    }
+
+    @Test
+    public void testWaitersShareTheFailure() {
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        String uri = server.url('/api/missing').toString()
+        List<Future<String>> results = executeConcurrently(restConnection, (1..4).collect { new Request.Builder(uri).build() })
+
+        results.each {
+            try {
+                it.get(10, TimeUnit.SECONDS)
+                assert false
+            } catch (java.util.concurrent.ExecutionException e) {
+                assert 404 == ((IntegrationRestException) e.cause).httpStatusCode
+            }
+        }
+        assert 1 == versionRequestCount.get()
+    }
+
+    @Test
+    public void testWaitersAreReleasedWhenTheCallThrowsAnError() {
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        restConnection.metricsListener = new RestConnectionMetricsListener() {
+            @Override
+            void requestCompleted(String method, URI uri, int statusCode, long durationNanos) {
+                throw new AssertionError('listener failed')
+            }
+        }
+        String uri = server.url('/api/projects/1').toString()
+        List<Future<String>> results = executeConcurrently(restConnection, (1..4).collect { new Request.Builder(uri).build() })
+
+        results.each {
+            try {
+                it.get(10, TimeUnit.SECONDS)
+                assert false
+            } catch (java.util.concurrent.ExecutionException e) {
+                assert e.cause instanceof AssertionError || e.cause.cause instanceof AssertionError
+            }
+        }
+        assert 0 == restConnection.requestCoalescer.inFlightCount
+    }
+
+    @Test
+    public void testWaiterGivesUpAtItsDeadline() {
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        String uri = server.url('/api/projects/1').toString()
+        ExecutorService executorService = Executors.newSingleThreadExecutor()
+        Future<String> leader = executorService.submit({ restConnection.executeRequest(new Request.Builder(uri).build()).withCloseable { it.contentString } } as Callable<String>)
+        while (versionRequestCount.get() == 0) {
+            Thread.sleep(10)
+        }
+
+        long start = System.currentTimeMillis()
+        try {
+            restConnection.executeRequest(new Request.Builder(uri).build(), new RequestTimeouts.Builder().deadlineMillis(200).build())
+            assert false
+        } catch (IntegrationException e) {
+            assert e.message.contains('deadline')
+        }
+        assert System.currentTimeMillis() - start < 5000
+
+        release.countDown()
+        assert 'GET /api/projects/1 application/json' == leader.get(10, TimeUnit.SECONDS)
+        executorService.shutdown()
+    }
+
+    @Test
+    public void testPostsAreNotCoalesced() {
+        BlackduckRestConnection restConnection = getRestConnection(true)
+        String uri = server.url('/api/projects').toString()
+        List<Future<String>> results = executeConcurrently(restConnection, (1..3).collect { new Request.Builder(uri).method(HttpMethod.POST).bodyContent(new StringBodyContent('{}')).build() })
+
+        results.each { assert 'POST /api/projects null' == it.get(10, TimeUnit.SECONDS) }
+        assert 3 == versionRequestCount.get()
+    }
+
+    @Test
+    public void testCoalescingIsOffByDefault() {
+        BlackduckRestConnection restConnection = getRestConnection(false)
+        assert null == restConnection.requestCoalescer
+        String uri = server.url('/api/projects/1').toString()
+        List<Future<String>> results = executeConcurrently(restConnection, (1..3).collect { new Request.Builder(uri).build() })
+
+        results.each { it.get(10, TimeUnit.SECONDS) }
+        assert 3 == versionRequestCount.get()
+    }
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.AsyncBlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BulkRequestResult
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RequestGovernor
+import com.synopsys.integration.exception.IntegrationException
+import com.synopsys.integration.log.IntBufferedLogger
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.request.Request
+import com.synopsys.integration.rest.request.Response
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class RequestGovernorTest {
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicInteger inFlight = new AtomicInteger()
+    private final AtomicInteger maxInFlight = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                int current = inFlight.incrementAndGet()
+                maxInFlight.accumulateAndGet(current, { a, b -> Math.max(a, b) })
+                Thread.sleep(20)
+                inFlight.decrementAndGet()
+                new MockResponse().setBody(request.path).setResponseCode(200)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection(double maxRequestsPerSecond, int maxRequestsInFlight) {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 10
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.maxRequestsPerSecond = maxRequestsPerSecond
+        builder.maxRequestsInFlight = maxRequestsInFlight
+        builder.build()
+    }
+
+    @Test
+    public void testConnectionsToTheSameHubShareTheGovernor() {
+        BlackduckRestConnection first = getRestConnection(0, 2)
+        BlackduckRestConnection second = getRestConnection(100, 8)
+
+        assert first.requestGovernor.is(second.requestGovernor)
+        assert 2 == second.requestGovernor.maxRequestsInFlight
+        assert null == getRestConnection(0, 0).requestGovernor
+
+        IntBufferedLogger logger = new IntBufferedLogger()
+        RequestGovernor.getShared(first.baseUrl, 0, 2, logger)
+        assert !logger.getOutputString(LogLevel.WARN)
+        RequestGovernor.getShared(first.baseUrl, 100, 8, logger)
+        assert logger.getOutputString(LogLevel.WARN).contains('ignoring the limits')
+    }
+
+    @Test
+    public void testUnreadBodiesStayInFlight() {
+        BlackduckRestConnection restConnection = getRestConnection(0, 2)
+        Response response = restConnection.executeRequest(new Request.Builder(server.url('/item/1').toString()).build())
+        assert 1 == restConnection.requestGovernor.requestsInFlight
+
+        assert '/item/1' == response.contentString
+        assert 0 == restConnection.requestGovernor.requestsInFlight
+        response.close()
+
+        restConnection.executeRequest(new Request.Builder(server.url('/item/2').toString()).build()).close()
+        assert 0 == restConnection.requestGovernor.requestsInFlight
+        restConnection.close()
+    }
+
+    @Test
+    public void testAsyncRequestsShareTheGovernor() {
+        BlackduckRestConnection restConnection = getRestConnection(0, 2)
+        AsyncBlackduckRestConnection asyncConnection = new AsyncBlackduckRestConnection(restConnection, 2)
+        List<CompletableFuture<Response>> responses = (1..10).collect { asyncConnection.executeRequest(new Request.Builder(server.url("/item/${it}").toString()).build()) }
+
+        assert '/item/10' == responses[9].get().contentString
+        assert responses.every { it.get().statusCode == 200 }
+        assert 2 == maxInFlight.get()
+        assert 10 == restConnection.requestGovernor.acquiredCount
+        assert 0 == restConnection.requestGovernor.requestsInFlight
+        asyncConnection.close()
+        asyncConnection.restConnection.close()
+    }
+
+    @Test
+    public void testRequestsInFlightAreLimited() {
+        BlackduckRestConnection restConnection = getRestConnection(0, 2)
+        List<Request> requests = (1..20).collect { new Request.Builder(server.url("/item/${it}").toString()).build() }
+        List<BulkRequestResult<String>> results = restConnection.executeRequests(requests, { it.getContentString() }, 8)
+
+        assert results.every { it.success }
+        assert 2 == maxInFlight.get()
+        assert 20 == restConnection.requestGovernor.acquiredCount
+        assert 0 == restConnection.requestGovernor.requestsInFlight
+        assert 0 == restConnection.requestGovernor.queueDepth
+        assert restConnection.requestGovernor.totalWaitNanos > 0
+        restConnection.close()
+    }
+
+    @Test
+    public void testRateIsLimited() {
+        RequestGovernor requestGovernor = new RequestGovernor(20, 0)
+        long start = System.nanoTime()
+        40.times {
+            requestGovernor.acquire()
+            requestGovernor.release(200, 1000)
+        }
+
+        // the first 20 requests are a burst, the other 20 take about a second
+        assert TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900
+    }
+
+    @Test
+    public void testRateAdaptsToTheHub() {
+        RequestGovernor requestGovernor = new RequestGovernor(100, 0)
+        requestGovernor.acquire()
+        requestGovernor.release(429, 1000)
+        assert 50 == requestGovernor.requestsPerSecond
+        assert 1 == requestGovernor.throttledCount
+
+        10.times {
+            requestGovernor.acquire()
+            requestGovernor.release(200, 1000)
+        }
+        assert 70 == Math.round(requestGovernor.requestsPerSecond)
+
+        requestGovernor.acquire()
+        requestGovernor.release(200, 10000)
+        assert 56 == Math.round(requestGovernor.requestsPerSecond)
+
+        10.times {
+            requestGovernor.acquire()
+            requestGovernor.release(429, 1000)
+        }
+        assert 10 == requestGovernor.requestsPerSecond
+    }
+
+    @Test
+    public void testTimedOutRequestsDoNotUseUpTheRate() {
+        RequestGovernor requestGovernor = new RequestGovernor(2, 1)
+        requestGovernor.acquire()
+        try {
+            requestGovernor.acquire(100)
+            assert false
+        } catch (IntegrationException e) {
+            assert e.message.contains('in flight')
+        }
+        requestGovernor.release(200, 1000)
+
+        // the timed out request gave back its permit, so this one needs no rate wait
+        requestGovernor.acquire(100)
+        requestGovernor.release(200, 1000)
+        assert 0 == requestGovernor.queueDepth
+    }
+
+    @Test
+    public void testRequestsWithoutResponseLeaveTheRateUnchanged() {
+        RequestGovernor requestGovernor = new RequestGovernor(100, 0)
+        requestGovernor.acquire()
+        requestGovernor.release(429, 1000)
+        requestGovernor.acquire()
+        requestGovernor.release(-1, 1000)
+
+        assert 50 == requestGovernor.requestsPerSecond
+    }
+
+    @Test
+    public void testAsyncAcquireWaitsForARelease() {
+        RequestGovernor requestGovernor = new RequestGovernor(0, 1)
+        requestGovernor.acquire()
+        CompletableFuture<Long> admitted = requestGovernor.acquireAsync(0)
+        CompletableFuture<Long> expired = requestGovernor.acquireAsync(50)
+        assert !admitted.done
+        assert 2 == requestGovernor.queueDepth
+
+        try {
+            expired.get()
+            assert false
+        } catch (ExecutionException e) {
+            assert e.cause instanceof IntegrationException
+        }
+        assert !admitted.done
+        requestGovernor.release(200, 1000)
+        assert admitted.get(1, TimeUnit.SECONDS) > 0
+        assert 1 == requestGovernor.requestsInFlight
+        assert 0 == requestGovernor.queueDepth
+        requestGovernor.release(200, 1000)
+        assert 0 == requestGovernor.requestsInFlight
+    }
+
+    @Test
+    public void testAsyncRequestsFailAtTheDeadline() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 10
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.maxRequestsInFlight = 1
+        builder.requestDeadlineMillis = 200
+        BlackduckRestConnection restConnection = builder.build()
+        AsyncBlackduckRestConnection asyncConnection = new AsyncBlackduckRestConnection(restConnection, 1)
+        asyncConnection.connect()
+
+        restConnection.requestGovernor.acquire()
+        CompletableFuture<Response> response = asyncConnection.executeRequest(new Request.Builder(server.url('/item/1').toString()).build())
+        try {
+            response.get(5, TimeUnit.SECONDS)
+            assert false
+        } catch (ExecutionException e) {
+            assert e.cause instanceof IntegrationException
+            assert e.cause.message.contains('200 ms')
+        }
+        restConnection.requestGovernor.release(200, 1000)
+
+        assert '/item/2' == asyncConnection.executeRequest(new Request.Builder(server.url('/item/2').toString()).build()).get().contentString
+        assert 0 == restConnection.requestGovernor.queueDepth
+        asyncConnection.close()
+        restConnection.close()
+    }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RequestTimeouts
+import com.synopsys.integration.blackduck.rest.RetryPolicy
+import com.synopsys.integration.exception.IntegrationException
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import com.synopsys.integration.rest.request.Response
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.apache.http.client.config.RequestConfig
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class RequestTimeoutsTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger apiRequestCount = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().setResponseCode(204)
+                }
+                apiRequestCount.incrementAndGet()
+                if (request.path.endsWith('unavailable')) {
+                    return new MockResponse().setResponseCode(503)
+                }
+                if (request.path.endsWith('slow')) {
+                    return new MockResponse().setBody('slow').setHeadersDelay(500, TimeUnit.MILLISECONDS)
+                }
+                new MockResponse().setBody('fast')
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private CredentialsRestConnectionBuilder getBuilder() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder
+    }
+
+    private Request getRequest(String path) {
+        new Request.Builder(server.url(path).toString()).build()
+    }
+
+    @Test
+    public void testSeparateTimeouts() {
+        CredentialsRestConnectionBuilder builder = getBuilder()
+        builder.connectTimeoutMillis = 1000
+        builder.connectionRequestTimeoutMillis = 500
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.connect()
+
+        RequestConfig requestConfig = restConnection.defaultRequestConfigBuilder.build()
+        assert 1000 == requestConfig.connectTimeout
+        assert 120000 == requestConfig.socketTimeout
+        assert 500 == requestConfig.connectionRequestTimeout
+    }
+
+    @Test
+    public void testPerRequestSocketTimeout() {
+        BlackduckRestConnection restConnection = getBuilder().build()
+        try {
+            restConnection.executeRequest(getRequest('/api/slow'), new RequestTimeouts.Builder().socketTimeoutMillis(100).build())
+            assert false
+        } catch (IntegrationException e) {
+            assert e.cause instanceof SocketTimeoutException
+        }
+
+        // the override only applies to its own request
+        restConnection.executeRequest(getRequest('/api/slow')).withCloseable { assert 'slow' == it.contentString }
+        restConnection.executeRequest(getRequest('/api/fast'), new RequestTimeouts.Builder().socketTimeoutMillis(100).build()).withCloseable { assert 'fast' == it.contentString }
+    }
+
+    @Test
+    public void testDeadlineLimitsRetries() {
+        CredentialsRestConnectionBuilder builder = getBuilder()
+        builder.retryPolicy = new RetryPolicy(20, 100, 100)
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.connect()
+
+        long start = System.currentTimeMillis()
+        try {
+            restConnection.executeRequest(getRequest('/api/unavailable'), new RequestTimeouts.Builder().deadlineMillis(300).build())
+            assert false
+        } catch (IntegrationRestException e) {
+            assert 503 == e.httpStatusCode
+        }
+        assert System.currentTimeMillis() - start < 1000
+        assert apiRequestCount.get() < 20
+    }
+
+    @Test
+    public void testDeadlineLimitsASlowResponse() {
+        CredentialsRestConnectionBuilder builder = getBuilder()
+        builder.requestDeadlineMillis = 200
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.connect()
+
+        long start = System.currentTimeMillis()
+        try {
+            restConnection.executeRequest(getRequest('/api/slow'))
+            assert false
+        } catch (IntegrationException e) {
+            assert e.cause instanceof SocketTimeoutException
+        }
+        assert System.currentTimeMillis() - start < 450
+        restConnection.executeRequest(getRequest('/api/slow'), new RequestTimeouts.Builder().deadlineMillis(5000).build()).withCloseable { assert 'slow' == it.contentString }
+    }
+
+    @Test
+    public void testDeadlineLimitsTheGovernorWait() {
+        CredentialsRestConnectionBuilder builder = getBuilder()
+        builder.maxRequestsInFlight = 1
+        BlackduckRestConnection restConnection = builder.build()
+        restConnection.connect()
+        // the unread body keeps the only permit
+        Response unread = restConnection.executeRequest(getRequest('/api/fast'))
+
+        long start = System.currentTimeMillis()
+        try {
+            restConnection.executeRequest(getRequest('/api/fast'), new RequestTimeouts.Builder().deadlineMillis(200).build())
+            assert false
+        } catch (IntegrationException e) {
+            assert e.message.contains('in flight')
+        }
+        assert System.currentTimeMillis() - start < 1000
+        assert 0 == restConnection.requestGovernor.queueDepth
+
+        unread.close()
+        restConnection.executeRequest(getRequest('/api/fast'), new RequestTimeouts.Builder().deadlineMillis(200).build()).withCloseable { assert 'fast' == it.contentString }
+    }
+
+}
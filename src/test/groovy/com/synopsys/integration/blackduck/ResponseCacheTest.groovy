@@ -0,0 +1,252 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.ResponseCache
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.apache.http.client.methods.RequestBuilder
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ResponseCacheTest {
+    private final MockWebServer server = new MockWebServer();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    private final AtomicInteger fullResponseCount = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf").setResponseCode(204)
+                }
+                if (request.path.endsWith('nocache')) {
+                    return new MockResponse().addHeader('ETag', '"v1"').addHeader('Cache-Control', 'no-store').setBody('secret')
+                }
+                if ('"v1"' == request.getHeader('If-None-Match')) {
+                    return new MockResponse().setResponseCode(304).addHeader('ETag', '"v1"')
+                }
+                fullResponseCount.incrementAndGet()
+                if (request.path.endsWith('session')) {
+                    return new MockResponse().addHeader('ETag', '"v1"').addHeader('Set-Cookie', 'AUTHORIZATION_BEARER=token').addHeader('X-CSRF-TOKEN', 'csrf').addHeader('Proxy-Agent', 'proxy').setBody('{"name":"project"}')
+                }
+                new MockResponse().addHeader('Content-Type', 'application/json').addHeader('ETag', '"v1"').setBody('{"name":"project"}')
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection(ResponseCache responseCache, String username = 'TestUser') {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = username
+        builder.password = 'Password'
+        builder.responseCache = responseCache
+        builder.build()
+    }
+
+    private String get(BlackduckRestConnection restConnection, String path) {
+        RequestBuilder requestBuilder = restConnection.createRequestBuilder(HttpMethod.GET)
+        requestBuilder.setUri(server.url(path).uri())
+        restConnection.executeRequest(requestBuilder.build()).withCloseable {
+            assert 200 == it.getStatusCode()
+            it.getContentString()
+        }
+    }
+
+    @Test
+    public void testNotModifiedIsServedFromCache() {
+        ResponseCache responseCache = new ResponseCache()
+        BlackduckRestConnection restConnection = getRestConnection(responseCache)
+
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+
+        assert 1 == fullResponseCount.get()
+        assert 2 == responseCache.hitCount
+        assert 1 == responseCache.missCount
+        assert 36 == responseCache.bytesSaved
+        assert 2 / 3d == responseCache.hitRatio
+        restConnection.close()
+    }
+
+    @Test
+    public void testNoStoreIsNotCached() {
+        ResponseCache responseCache = new ResponseCache()
+        BlackduckRestConnection restConnection = getRestConnection(responseCache)
+
+        assert 'secret' == get(restConnection, '/api/nocache')
+        assert 'secret' == get(restConnection, '/api/nocache')
+
+        assert 0 == responseCache.memoryEntryCount
+        assert 0 == responseCache.hitCount
+        restConnection.close()
+    }
+
+    @Test
+    public void testLargeResponsesAreNotCached() {
+        ResponseCache responseCache = new ResponseCache(1024, 8, null)
+        BlackduckRestConnection restConnection = getRestConnection(responseCache)
+
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+
+        assert 2 == fullResponseCount.get()
+        assert 0 == responseCache.memoryEntryCount
+        restConnection.close()
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        ResponseCache responseCache = new ResponseCache(40, 1024, null)
+        BlackduckRestConnection restConnection = getRestConnection(responseCache)
+
+        get(restConnection, '/api/projects/1')
+        get(restConnection, '/api/projects/2')
+        get(restConnection, '/api/projects/1')
+        get(restConnection, '/api/projects/3')
+
+        assert 2 == responseCache.memoryEntryCount
+        assert 36 == responseCache.memoryBytes
+        fullResponseCount.set(0)
+        get(restConnection, '/api/projects/1')
+        get(restConnection, '/api/projects/2')
+        assert 1 == fullResponseCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testDiskEntriesSurviveANewCache() {
+        File directory = temporaryFolder.newFolder()
+        BlackduckRestConnection restConnection = getRestConnection(new ResponseCache(1024, 1024, directory.toPath()))
+        get(restConnection, '/api/projects')
+        restConnection.close()
+
+        ResponseCache responseCache = new ResponseCache(1024, 1024, directory.toPath())
+        restConnection = getRestConnection(responseCache)
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+
+        assert 1 == fullResponseCount.get()
+        assert 1 == responseCache.hitCount
+        restConnection.close()
+    }
+
+    @Test
+    public void testResponsesAreNotSharedBetweenCredentials() {
+        ResponseCache responseCache = new ResponseCache()
+        BlackduckRestConnection restConnection = getRestConnection(responseCache)
+        BlackduckRestConnection otherConnection = getRestConnection(responseCache, 'OtherUser')
+
+        get(restConnection, '/api/projects')
+        get(otherConnection, '/api/projects')
+        get(otherConnection, '/api/projects')
+
+        assert 2 == fullResponseCount.get()
+        assert 1 == responseCache.hitCount
+        restConnection.close()
+        otherConnection.close()
+    }
+
+    @Test
+    public void testFailedDiskWritesStillReturnTheResponse() {
+        // a file where the directory should be
+        File notADirectory = temporaryFolder.newFile()
+        ResponseCache responseCache = new ResponseCache(1024, 1024, notADirectory.toPath())
+        BlackduckRestConnection restConnection = getRestConnection(responseCache)
+
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+        assert '{"name":"project"}' == get(restConnection, '/api/projects')
+
+        assert 1 == responseCache.diskWriteFailureCount
+        assert 1 == responseCache.hitCount
+        assert 0 == restConnection.poolStats.leased
+        restConnection.close()
+    }
+
+    @Test
+    public void testDiskTierIsBounded() {
+        File directory = temporaryFolder.newFolder()
+        BlackduckRestConnection restConnection = getRestConnection(new ResponseCache(1024, 1024, directory.toPath()))
+        get(restConnection, '/api/projects/1')
+        restConnection.close()
+        long entryBytes = directory.listFiles()[0].length()
+
+        restConnection = getRestConnection(new ResponseCache(1024, 1024, directory.toPath(), entryBytes * 2))
+        get(restConnection, '/api/projects/2')
+        get(restConnection, '/api/projects/3')
+        get(restConnection, '/api/projects/4')
+
+        assert 2 == directory.listFiles().length
+        assert directory.listFiles().every { it.name.endsWith('.response') }
+        restConnection.close()
+    }
+
+    @Test
+    public void testSessionHeadersAreNotCached() {
+        File directory = temporaryFolder.newFolder()
+        BlackduckRestConnection restConnection = getRestConnection(new ResponseCache(1024, 1024, directory.toPath()))
+        get(restConnection, '/api/session')
+
+        RequestBuilder requestBuilder = restConnection.createRequestBuilder(HttpMethod.GET)
+        requestBuilder.setUri(server.url('/api/session').uri())
+        restConnection.executeRequest(requestBuilder.build()).withCloseable {
+            assert '{"name":"project"}' == it.getContentString()
+            assert '"v1"' == it.getActualResponse().getFirstHeader('ETag').value
+            assert null == it.getActualResponse().getFirstHeader('Set-Cookie')
+            assert null == it.getActualResponse().getFirstHeader('X-CSRF-TOKEN')
+            assert null == it.getActualResponse().getFirstHeader('Proxy-Agent')
+        }
+
+        assert 1 == fullResponseCount.get()
+        String stored = new String(directory.listFiles()[0].bytes, 'UTF-8')
+        assert !stored.contains('token')
+        assert stored.contains('ETag')
+        restConnection.close()
+    }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.AsyncBlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RestConnectionMetricsListener
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.apache.http.client.methods.RequestBuilder
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+
+class RestConnectionMetricsListenerTest {
+    private final MockWebServer server = new MockWebServer();
+
+    private final List<String> events = new CopyOnWriteArrayList<>()
+
+    private final RestConnectionMetricsListener metricsListener = new RestConnectionMetricsListener() {
+        @Override
+        void requestCompleted(String method, URI uri, int statusCode, long durationNanos) {
+            assert durationNanos > 0
+            events.add("${method} ${uri.path} ${statusCode}".toString())
+        }
+
+        @Override
+        void requestFailed(String method, URI uri, Exception exception, long durationNanos) {
+            events.add("${method} ${uri.path} failed".toString())
+        }
+
+        @Override
+        void requestRetried(String method, URI uri, int statusCode) {
+            events.add("${method} ${uri.path} retried after ${statusCode}".toString())
+        }
+
+        @Override
+        void authenticationCompleted(boolean successful, long durationNanos) {
+            assert durationNanos > 0
+            events.add("authentication ${successful}".toString())
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        AtomicInteger loginCount = new AtomicInteger()
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    int count = loginCount.incrementAndGet()
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf${count}").setResponseCode(204)
+                }
+                if (request.path.endsWith('expired') && 'csrf1' == request.getHeader('X-CSRF-TOKEN')) {
+                    return new MockResponse().setResponseCode(401)
+                }
+                if (request.path.endsWith('missing')) {
+                    return new MockResponse().setResponseCode(404)
+                }
+                new MockResponse().setBody('Hello')
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.metricsListener = metricsListener
+        builder.build()
+    }
+
+    private RequestBuilder createRequestBuilder(BlackduckRestConnection restConnection, String path) {
+        RequestBuilder requestBuilder = restConnection.createRequestBuilder(HttpMethod.GET)
+        requestBuilder.setUri(server.url(path).uri())
+        requestBuilder
+    }
+
+    @Test
+    public void testRequestsAndAuthenticationsAreReported() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        restConnection.connect()
+        restConnection.executeRequest(createRequestBuilder(restConnection, '/api/expired').build()).close()
+        try {
+            restConnection.executeRequest(createRequestBuilder(restConnection, '/api/missing').build())
+            fail('Should have thrown exception')
+        } catch (IntegrationRestException e) {
+            assert 404 == e.httpStatusCode
+        }
+        restConnection.close()
+
+        assert ['authentication true', 'GET /api/expired retried after 401', 'authentication true', 'GET /api/expired 200', 'GET /api/missing 404'] == events
+    }
+
+    @Test
+    public void testFailedRequestsAreReported() {
+        BlackduckRestConnection restConnection = getRestConnection()
+        restConnection.connect()
+        RequestBuilder requestBuilder = createRequestBuilder(restConnection, '/api/projects')
+        server.shutdown()
+        try {
+            restConnection.executeRequest(requestBuilder.build())
+            fail('Should have thrown exception')
+        } catch (Exception e) {
+        }
+        restConnection.close()
+
+        assert ['authentication true', 'GET /api/projects failed'] == events
+    }
+
+    @Test
+    public void testAsyncRequestsAreReported() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.metricsListener = metricsListener
+        builder.buildAsync().withCloseable { AsyncBlackduckRestConnection connection ->
+            assert 'Hello' == connection.executeRequest(new Request.Builder(server.url('/api/projects').toString()).build()).get().contentString
+            try {
+                connection.executeRequest(new Request.Builder(server.url('/api/missing').toString()).build()).get()
+                fail('Should have thrown exception')
+            } catch (ExecutionException e) {
+                assert e.cause instanceof IntegrationRestException
+            }
+        }
+
+        assert ['authentication true', 'GET /api/projects 200', 'GET /api/missing 404'] == events
+    }
+
+}
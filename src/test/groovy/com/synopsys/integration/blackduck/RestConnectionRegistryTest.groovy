@@ -0,0 +1,133 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RestConnectionRegistry
+import com.synopsys.integration.blackduck.rest.RetryPolicy
+import com.synopsys.integration.blackduck.rest.SharedRestConnection
+import com.synopsys.integration.rest.HttpMethod
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class RestConnectionRegistryTest {
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicInteger loginCount = new AtomicInteger()
+
+    private final RestConnectionRegistry registry = new RestConnectionRegistry()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    loginCount.incrementAndGet()
+                    Thread.sleep(50)
+                    return new MockResponse().setResponseCode(204)
+                }
+                new MockResponse().setBody('Hello')
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private CredentialsRestConnectionBuilder createBuilder(String username) {
+        TestConnectionBuilders.createCredentialsBuilder(server.url("/"), username)
+    }
+
+    @Test
+    public void testIdenticalBuildersShareAConnection() {
+        SharedRestConnection<CredentialsRestConnection> first = registry.acquire(createBuilder('TestUser'))
+        SharedRestConnection<CredentialsRestConnection> second = registry.acquire(createBuilder('TestUser'))
+        SharedRestConnection<CredentialsRestConnection> other = registry.acquire(createBuilder('OtherUser'))
+
+        assert first.connection.is(second.connection)
+        assert !first.connection.is(other.connection)
+        assert 2 == loginCount.get()
+        assert 2 == registry.connectionCount
+        assert 2 == registry.getReferenceCount(first.key)
+        assert !first.key.contains('Password')
+
+        first.close()
+        first.close()
+        assert 1 == registry.getReferenceCount(first.key)
+        second.connection.executeRequest(second.connection.createRequestBuilder(HttpMethod.GET).build()).withCloseable { assert 'Hello' == it.contentString }
+
+        second.close()
+        other.close()
+        assert 0 == registry.connectionCount
+        assert 0 == second.connection.poolStats.available
+    }
+
+    @Test
+    public void testConcurrentUsersAuthenticateOnce() {
+        ExecutorService executorService = Executors.newFixedThreadPool(8)
+        List<SharedRestConnection<CredentialsRestConnection>> sharedConnections = executorService.invokeAll((1..8).collect {
+            { -> registry.acquire(createBuilder('TestUser')) } as Callable<SharedRestConnection<CredentialsRestConnection>>
+        })*.get()
+        executorService.shutdown()
+
+        assert 1 == loginCount.get()
+        assert 1 == sharedConnections*.connection.unique { System.identityHashCode(it) }.size()
+        sharedConnections*.close()
+        assert 0 == registry.connectionCount
+    }
+
+    @Test
+    public void testDifferentSettingsGetDifferentKeys() {
+        CredentialsRestConnectionBuilder colonInUsername = createBuilder('u:a')
+        colonInUsername.password = 'b'
+        CredentialsRestConnectionBuilder colonInPassword = createBuilder('u')
+        colonInPassword.password = 'a:b'
+        assert colonInUsername.createConnectionKey() != colonInPassword.createConnectionKey()
+
+        CredentialsRestConnectionBuilder retrying = createBuilder('TestUser')
+        retrying.retryPolicy = new RetryPolicy(3, 10, 1000)
+        assert createBuilder('TestUser').createConnectionKey() != retrying.createConnectionKey()
+
+        CredentialsRestConnectionBuilder emptyHeader = createBuilder('TestUser')
+        emptyHeader.commonRequestHeaders.put('X-Test', '')
+        CredentialsRestConnectionBuilder nullHeader = createBuilder('TestUser')
+        nullHeader.commonRequestHeaders.put('X-Test', null)
+        assert emptyHeader.createConnectionKey() != nullHeader.createConnectionKey()
+    }
+
+}
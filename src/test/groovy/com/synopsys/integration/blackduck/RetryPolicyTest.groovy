@@ -0,0 +1,185 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RetryPolicy
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.exception.IntegrationRestException
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.apache.http.HttpVersion
+import org.apache.http.client.methods.RequestBuilder
+import org.apache.http.client.utils.DateUtils
+import org.apache.http.message.BasicHttpResponse
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class RetryPolicyTest {
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicInteger requestCount = new AtomicInteger()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().addHeader("X-CSRF-TOKEN", "csrf").setResponseCode(204)
+                }
+                int count = requestCount.incrementAndGet()
+                if (count == 1) {
+                    return new MockResponse().setResponseCode(429).addHeader('Retry-After', '1')
+                }
+                if (count == 2 || request.path.endsWith('down')) {
+                    return new MockResponse().setResponseCode(503)
+                }
+                new MockResponse().setBody('Hello')
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection(RetryPolicy retryPolicy) {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.retryPolicy = retryPolicy
+        builder.build()
+    }
+
+    private RequestBuilder createRequestBuilder(BlackduckRestConnection restConnection, HttpMethod method, String path) {
+        RequestBuilder requestBuilder = restConnection.createRequestBuilder(method)
+        requestBuilder.setUri(server.url(path).uri())
+        requestBuilder
+    }
+
+    @Test
+    public void testIdempotentRequestsAreRetried() {
+        BlackduckRestConnection restConnection = getRestConnection(new RetryPolicy(3, 10, 5000))
+        long start = System.currentTimeMillis()
+        restConnection.executeRequest(createRequestBuilder(restConnection, HttpMethod.GET, '/api/projects').build()).withCloseable {
+            assert 'Hello' == it.contentString
+        }
+
+        assert System.currentTimeMillis() - start >= 1000
+        assert 3 == requestCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testRetriesStopAfterMaxAttempts() {
+        BlackduckRestConnection restConnection = getRestConnection(new RetryPolicy(3, 10, 1000))
+        try {
+            restConnection.executeRequest(createRequestBuilder(restConnection, HttpMethod.PUT, '/api/down').build())
+            fail('Should have thrown exception')
+        } catch (IntegrationRestException e) {
+            assert 503 == e.httpStatusCode
+        }
+
+        assert 3 == requestCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testPostIsNotRetried() {
+        BlackduckRestConnection restConnection = getRestConnection(new RetryPolicy(3, 10, 10))
+        try {
+            restConnection.executeRequest(createRequestBuilder(restConnection, HttpMethod.POST, '/api/projects').build())
+            fail('Should have thrown exception')
+        } catch (IntegrationRestException e) {
+            assert 429 == e.httpStatusCode
+        }
+
+        assert 1 == requestCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testNoRetryByDefault() {
+        BlackduckRestConnection restConnection = getRestConnection(null)
+        try {
+            restConnection.executeRequest(createRequestBuilder(restConnection, HttpMethod.GET, '/api/projects').build())
+            fail('Should have thrown exception')
+        } catch (IntegrationRestException e) {
+            assert 429 == e.httpStatusCode
+        }
+
+        assert 1 == requestCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testLongerRetryAfterIsNotRetried() {
+        BlackduckRestConnection restConnection = getRestConnection(new RetryPolicy(3, 10, 10))
+        try {
+            restConnection.executeRequest(createRequestBuilder(restConnection, HttpMethod.GET, '/api/projects').build())
+            fail('Should have thrown exception')
+        } catch (IntegrationRestException e) {
+            assert 429 == e.httpStatusCode
+        }
+
+        assert 1 == requestCount.get()
+        restConnection.close()
+    }
+
+    @Test
+    public void testBackoff() {
+        RetryPolicy retryPolicy = new RetryPolicy(5, 100, 1000)
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, 'Service Unavailable')
+        100.times {
+            assert retryPolicy.getBackoffMillis(response, 1) <= 100
+            assert retryPolicy.getBackoffMillis(response, 3) <= 400
+            assert retryPolicy.getBackoffMillis(response, 40) <= 1000
+        }
+
+        response.setHeader('Retry-After', '1')
+        assert 1000 == retryPolicy.getBackoffMillis(response, 1)
+        // waiting less than the Hub asked for would only be rejected again
+        response.setHeader('Retry-After', '120')
+        assert RetryPolicy.DO_NOT_RETRY == retryPolicy.getBackoffMillis(response, 1)
+        // too large for a long is still longer than the Hub is worth waiting for
+        response.setHeader('Retry-After', '99999999999999999999')
+        assert RetryPolicy.DO_NOT_RETRY == retryPolicy.getBackoffMillis(response, 1)
+        response.setHeader('Retry-After', DateUtils.formatDate(new Date(System.currentTimeMillis() + 600)))
+        assert retryPolicy.getBackoffMillis(response, 1) <= 600
+    }
+
+}
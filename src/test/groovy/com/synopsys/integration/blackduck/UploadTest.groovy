@@ -0,0 +1,149 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.BlackduckRestConnection
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.StreamingMultipartBodyContent
+import com.synopsys.integration.log.LogLevel
+import com.synopsys.integration.log.PrintStreamIntLogger
+import com.synopsys.integration.rest.HttpMethod
+import com.synopsys.integration.rest.request.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+
+class UploadTest {
+    private static final byte[] SCAN = (0..<(1024 * 1024 + 17)).collect { (byte) (it % 253) } as byte[]
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<RecordedRequest> uploads = Collections.synchronizedList([])
+    private final Map<String, byte[]> chunks = new ConcurrentHashMap<>()
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    return new MockResponse().addHeader('X-CSRF-TOKEN', 'csrf').setResponseCode(204)
+                }
+                if (request.getHeader('X-CSRF-TOKEN') != 'csrf') {
+                    return new MockResponse().setResponseCode(401)
+                }
+                uploads.add(request)
+                if (request.getHeader('Content-Range') != null) {
+                    chunks.put(request.getHeader('Content-Range'), request.body.readByteArray())
+                }
+                new MockResponse().setResponseCode(201).setBody(request.bodySize.toString())
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private BlackduckRestConnection getRestConnection() {
+        CredentialsRestConnectionBuilder builder = new CredentialsRestConnectionBuilder();
+        builder.logger = new PrintStreamIntLogger(System.out, LogLevel.INFO);
+        builder.baseUrl = server.url("/")
+        builder.timeout = 120
+        builder.username = 'TestUser'
+        builder.password = 'Password'
+        builder.build()
+    }
+
+    private Path getScanFile() {
+        Path scanFile = temporaryFolder.root.toPath().resolve('scan.bdio')
+        Files.write(scanFile, SCAN)
+        scanFile
+    }
+
+    private Request getUploadRequest() {
+        new Request.Builder(server.url('/api/scan/data').toString()).method(HttpMethod.POST).mimeType('application/octet-stream').build()
+    }
+
+    @Test
+    public void testFileUploadIsSized() {
+        getRestConnection().upload(getUploadRequest(), getScanFile()).withCloseable { assert SCAN.length.toString() == it.contentString }
+
+        RecordedRequest upload = uploads.first()
+        assert SCAN.length.toString() == upload.getHeader('Content-Length')
+        assert upload.getHeader('Content-Type').startsWith('application/octet-stream')
+        assert SCAN == upload.body.readByteArray()
+    }
+
+    @Test
+    public void testStreamUploadIsChunked() {
+        getRestConnection().upload(getUploadRequest(), new ByteArrayInputStream(SCAN), -1).close()
+
+        RecordedRequest upload = uploads.first()
+        assert 'chunked' == upload.getHeader('Transfer-Encoding')
+        assert SCAN == upload.body.readByteArray()
+    }
+
+    @Test
+    public void testMultipartUpload() {
+        StreamingMultipartBodyContent bodyContent = new StreamingMultipartBodyContent().addFile('file', getScanFile()).addText('projectName', 'project')
+        Request request = new Request.Builder(server.url('/api/scan/data').toString()).method(HttpMethod.POST).bodyContent(bodyContent).build()
+        getRestConnection().executeRequest(request).close()
+
+        RecordedRequest upload = uploads.first()
+        assert upload.getHeader('Content-Type').startsWith('multipart/form-data')
+        assert null != upload.getHeader('Content-Length')
+        String body = upload.body.readString(java.nio.charset.StandardCharsets.ISO_8859_1)
+        assert body.contains('filename="scan.bdio"')
+        assert body.contains('project')
+        assert body.length() > SCAN.length
+    }
+
+    @Test
+    public void testChunkedUploadInParallel() {
+        List<Integer> statusCodes = getRestConnection().uploadInChunks(getUploadRequest(), getScanFile(), 100 * 1024, 4, { it.statusCode })
+
+        assert 11 == statusCodes.size()
+        assert statusCodes.every { 201 == it }
+        assert 11 == chunks.size()
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream()
+        chunks.keySet().sort { Long.parseLong(it.substring('bytes '.length(), it.indexOf('-'))) }.each { reassembled.write(chunks[it]) }
+        assert SCAN == reassembled.toByteArray()
+        assert chunks.containsKey("bytes 1024000-${SCAN.length - 1}/${SCAN.length}".toString())
+    }
+
+}
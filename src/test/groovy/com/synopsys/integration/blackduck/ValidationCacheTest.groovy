@@ -0,0 +1,197 @@
+/**
+ * Hub Common Rest
+ *
+ * Copyright (C) 2018 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.*/
+package com.synopsys.integration.blackduck
+
+import com.synopsys.integration.blackduck.rest.CredentialsRestConnectionBuilder
+import com.synopsys.integration.blackduck.rest.RestConnectionRegistry
+import com.synopsys.integration.blackduck.validator.ConnectivityProbe
+import com.synopsys.integration.blackduck.validator.ValidationCache
+import com.synopsys.integration.rest.connection.RestConnectionField
+import com.synopsys.integration.validator.ValidationResults
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ValidationCacheTest {
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicInteger loginCount = new AtomicInteger()
+    private final AtomicInteger versionCount = new AtomicInteger()
+
+    private final ValidationCache validationCache = new ValidationCache(2)
+
+    @Before
+    public void setUp() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.path.endsWith('j_spring_security_check')) {
+                    loginCount.incrementAndGet()
+                    return new MockResponse().setResponseCode(204)
+                }
+                if (request.path.endsWith('api/current-version')) {
+                    versionCount.incrementAndGet()
+                    return new MockResponse().setBody('{"version":"4.8.0"}')
+                }
+                new MockResponse().setResponseCode(404)
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private CredentialsRestConnectionBuilder createBuilder(String username) {
+        CredentialsRestConnectionBuilder builder = TestConnectionBuilders.createCredentialsBuilder(server.url("/"), username)
+        builder.validationCache = validationCache
+        builder
+    }
+
+    @Test
+    public void testIdenticalConfigurationsAreValidatedOnce() {
+        createBuilder('TestUser').build()
+        createBuilder('TestUser').build()
+        assert createBuilder('TestUser').valid
+        assert 1 == validationCache.missCount
+        assert 2 == validationCache.hitCount
+
+        createBuilder('OtherUser').build()
+        assert 2 == validationCache.missCount
+        assert 2 == validationCache.size()
+    }
+
+    @Test
+    public void testInvalidConfigurationsStillFail() {
+        CredentialsRestConnectionBuilder builder = createBuilder(null)
+        2.times {
+            try {
+                builder.build()
+                assert false
+            } catch (IllegalStateException e) {
+                assert e.message.startsWith('Invalid Configuration: ')
+            }
+        }
+        assert 1 == validationCache.hitCount
+
+        // the username "null" is a different configuration than a missing username
+        assert createBuilder('null').valid
+
+        // the logger is validated too, so it is part of the cached configuration
+        CredentialsRestConnectionBuilder withoutLogger = createBuilder('TestUser')
+        withoutLogger.logger = null
+        assert createBuilder('TestUser').valid
+        assert !withoutLogger.valid
+
+        CredentialsRestConnectionBuilder withoutHeaders = createBuilder('TestUser')
+        withoutHeaders.commonRequestHeaders = null
+        assert !withoutHeaders.valid
+    }
+
+    @Test
+    public void testNullHeaderNamesHaveAKey() {
+        CredentialsRestConnectionBuilder nullName = createBuilder('TestUser')
+        nullName.commonRequestHeaders.put(null, 'value')
+        CredentialsRestConnectionBuilder dashName = createBuilder('TestUser')
+        dashName.commonRequestHeaders.put('-', 'value')
+
+        assert nullName.createConnectionKey() != dashName.createConnectionKey()
+        assert nullName.createConnectionKey() != createBuilder('TestUser').createConnectionKey()
+    }
+
+    @Test
+    public void testLeastRecentlyUsedConfigurationsAreDropped() {
+        createBuilder('First').build()
+        createBuilder('Second').build()
+        createBuilder('First').build()
+        createBuilder('Third').build()
+        assert 2 == validationCache.size()
+
+        createBuilder('First').build()
+        assert 2 == validationCache.hitCount
+        createBuilder('Second').build()
+        assert 4 == validationCache.missCount
+    }
+
+    @Test
+    public void testProbeReusesThePooledConnectionAndMemoizesTheOutcome() {
+        RestConnectionRegistry registry = new RestConnectionRegistry()
+        ConnectivityProbe probe = new ConnectivityProbe(registry, 60 * 1000)
+        assert probe.probe(createBuilder('TestUser')).success
+        assert probe.probe(createBuilder('TestUser')).success
+        assert 1 == versionCount.get()
+        assert 1 == probe.hitCount
+        assert 1 == registry.connectionCount
+
+        // after the outcome expires the Hub is asked again over the same authenticated connection
+        probe.invalidate(createBuilder('TestUser'))
+        assert probe.probe(createBuilder('TestUser')).success
+        assert 2 == versionCount.get()
+        assert 1 == loginCount.get()
+
+        probe.close()
+        assert 0 == registry.connectionCount
+    }
+
+    @Test
+    public void testExpiredProbeOutcomesAreDropped() {
+        RestConnectionRegistry registry = new RestConnectionRegistry()
+        ConnectivityProbe probe = new ConnectivityProbe(registry, 50)
+        assert probe.probe(createBuilder('TestUser')).success
+        assert probe.probe(createBuilder('OtherUser')).success
+        assert 2 == probe.outcomeCount
+
+        Thread.sleep(100)
+        assert probe.probe(createBuilder('TestUser')).success
+        assert 1 == probe.outcomeCount
+        assert 3 == probe.probeCount
+        probe.close()
+    }
+
+    @Test
+    public void testProbeReportsAnUnreachableHub() {
+        CredentialsRestConnectionBuilder builder = createBuilder('TestUser')
+        server.shutdown()
+
+        RestConnectionRegistry registry = new RestConnectionRegistry()
+        ConnectivityProbe probe = new ConnectivityProbe(registry, 0)
+        ValidationResults results = probe.probe(builder)
+        assert results.hasErrors()
+        assert results.getResultString(RestConnectionField.URL).contains('Could not reach the Hub')
+        assert 0 == registry.connectionCount
+
+        ValidationResults invalidResults = probe.probe(createBuilder(null))
+        assert invalidResults.hasErrors()
+        assert 1 == probe.probeCount
+        probe.close()
+    }
+
+}